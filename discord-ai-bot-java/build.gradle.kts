@@ -33,6 +33,12 @@ dependencies {
 
     // PDF parsing
     implementation("org.apache.pdfbox:pdfbox:2.0.30")
+
+    // Tests
+    testImplementation(platform("org.junit:junit-bom:5.10.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
 }
 
 application {
@@ -46,6 +52,10 @@ java {
     }
 }
 
+tasks.test {
+    useJUnitPlatform()
+}
+
 // ✅ Soporte para emojis y caracteres especiales (UTF-8)
 tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
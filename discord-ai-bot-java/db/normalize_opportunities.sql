@@ -0,0 +1,65 @@
+-- Moves the per-student 'opportunities' table to the shared 'opportunity' catalog plus the
+-- 'user_opportunity' assignment table (see the schema in README.md).
+-- Runs in one transaction; the old table is kept as 'opportunities_legacy' until verified.
+--
+--   psql -d <database> -f discord-ai-bot-java/db/normalize_opportunities.sql
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS opportunity (
+  opportunity_id TEXT PRIMARY KEY,
+  title TEXT,
+  description TEXT,
+  job_type TEXT,
+  application_deadline DATE,
+  url TEXT,
+  wage TEXT,
+  home_office TEXT,
+  benefits TEXT,
+  formal_requirements TEXT,
+  technical_requirements TEXT,
+  contact_person TEXT,
+  company TEXT,
+  content_hash TEXT,
+  updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_opportunity_deadline ON opportunity (application_deadline);
+
+CREATE TABLE IF NOT EXISTS user_opportunity (
+  discord_id TEXT NOT NULL,
+  opportunity_id TEXT NOT NULL REFERENCES opportunity (opportunity_id) ON DELETE CASCADE,
+  assigned_at TIMESTAMP NOT NULL DEFAULT NOW(),
+  PRIMARY KEY (discord_id, opportunity_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_opportunity_opportunity ON user_opportunity (opportunity_id);
+
+-- One catalog row per opportunity; where students hold different copies, keep the one with
+-- the latest deadline. content_hash stays NULL, so the bot rewrites each row once on its next save.
+INSERT INTO opportunity (
+    opportunity_id, title, description, job_type, application_deadline,
+    url, wage, home_office, benefits, formal_requirements,
+    technical_requirements, contact_person, company
+)
+SELECT DISTINCT ON (opportunity_id)
+       opportunity_id, title, description, job_type, application_deadline,
+       url, wage, home_office, benefits, formal_requirements,
+       technical_requirements, contact_person, company
+FROM opportunities
+ORDER BY opportunity_id, application_deadline DESC NULLS LAST
+ON CONFLICT (opportunity_id) DO NOTHING;
+
+INSERT INTO user_opportunity (discord_id, opportunity_id)
+SELECT discord_id, opportunity_id
+FROM opportunities
+WHERE discord_id IS NOT NULL
+ON CONFLICT (discord_id, opportunity_id) DO NOTHING;
+
+ALTER TABLE opportunities RENAME TO opportunities_legacy;
+ALTER INDEX IF EXISTS idx_opportunities_deadline RENAME TO idx_opportunities_legacy_deadline;
+
+COMMIT;
+
+-- Once the bot runs fine on the new tables:
+--   DROP TABLE opportunities_legacy;
@@ -1,9 +1,12 @@
 package bot;
 
 import bot.ai.GPTClient;
+import bot.api.OpportunityCatalog;
+import bot.api.OpportunityCatalogSync;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import storage.ExpiredOpportunityPurger;
 
 import javax.security.auth.login.LoginException;
 
@@ -35,7 +38,14 @@ public class BotMain {
             gptClient = new GPTClient(openAiKey); // This enables GPT-based features
         }
 
-        // 4. Build the JDA Discord client with required configuration
+        // 4. Keep a local opportunity catalog in sync so matching doesn't wait on EXPERTS.AI,
+        //    and purge saved opportunities whose deadline has passed
+        OpportunityCatalog catalog = new OpportunityCatalog();
+        new OpportunityCatalogSync(catalog).start(Long.getLong("opportunity.sync.intervalMinutes", 30));
+        new ExpiredOpportunityPurger().start(Long.getLong("opportunity.purge.intervalMinutes", 60));
+        CvAnalyzer.pruneStaleCache(); // Drop cached CV analyses made with older prompts
+
+        // 5. Build the JDA Discord client with required configuration
         JDABuilder builder = JDABuilder.createDefault(discordToken)
                 // Enable gateway intents for message handling in both DMs and servers
                 .enableIntents(
@@ -46,13 +56,13 @@ public class BotMain {
                 // Set the activity text shown in Discord as "Listening to !start"
                 .setActivity(Activity.listening("!start"));
 
-        // 5. Register your event listeners (handlers for commands and button interactions)
+        // 6. Register your event listeners (handlers for commands and button interactions)
         builder.addEventListeners(
-                new CommandHandler(gptClient),   // Handles commands like !start, !ask, etc.
-                new InteractionHandler()         // Handles buttons and select menu interactions
+                new CommandHandler(gptClient, catalog),   // Handles commands like !start, !ask, etc.
+                new InteractionHandler(catalog)           // Handles buttons and select menu interactions
         );
 
-        // 6. Login and start the bot
+        // 7. Login and start the bot
         builder.build();
     }
 }
@@ -1,6 +1,12 @@
 package bot;
 
+import bot.ai.AnswerCache;
+import bot.ai.ContextPacker;
+import bot.ai.ConversationMemory;
 import bot.ai.GPTClient;
+import bot.ai.GptScheduler;
+import bot.api.OpportunityCatalog;
+import bot.api.OpportunityEmbedCache;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.ChannelType;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
@@ -14,17 +20,14 @@ import net.dv8tion.jda.api.interactions.components.selections.StringSelectMenu;
 
 import org.jetbrains.annotations.NotNull;
 import storage.StudentDAO;
-import util.PdfUtils;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import storage.OpportunityDAO;
 
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * This class handles message events and command processing in both public and private Discord channels.
@@ -33,15 +36,29 @@ import java.util.*;
 public class CommandHandler extends ListenerAdapter {
 
     private final GPTClient gpt;
+    private final OpportunityCatalog catalog;
+    private final GptScheduler gptScheduler;
+    private final ConversationMemory conversationMemory = new ConversationMemory();
+    private final AnswerCache answerCache = new AnswerCache();
+    private final CvPipeline cvPipeline;
     private static final Map<String, Integer> userSteps = new HashMap<>(); // Tracks the registration step per user
 
+    private static final String SYSTEM_PROMPT =
+            "You are an AI career assistant in a Discord bot called Jobify CVUT. "
+                    + "You help students at FIT ČVUT find the best job opportunities from the opportunities provided. "
+                    + "Always be helpful, friendly, and use natural, engaging language. "
+                    + "Focus on career guidance, internships, CVs, and job matching based on their profile.";
+
     // Begin the registration process for a user
     public static void startRegistrationFor(String userId) {
         userSteps.put(userId, 1);
     }
 
-    public CommandHandler(GPTClient gpt) {
+    public CommandHandler(GPTClient gpt, OpportunityCatalog catalog) {
         this.gpt = gpt;
+        this.catalog = catalog;
+        this.gptScheduler = gpt != null ? new GptScheduler(gpt) : null;
+        this.cvPipeline = new CvPipeline(gpt != null ? new CvAnalyzer(gpt, gptScheduler) : null);
     }
 
     // Runs when the bot is ready and connected to Discord
@@ -126,36 +143,32 @@ public class CommandHandler extends ListenerAdapter {
                     String skills = profile.get("Skills");
                     String interest = profile.get("Career Interest");
 
-                    Set<bot.api.OpportunityClient.Opportunity> results =
-                            bot.api.OpportunityClient.searchMultipleKeywords(skills + " " + interest);
+                    List<bot.api.OpportunityClient.Opportunity> results = catalog.match(skills + " " + interest, StudentDAO.getCvText(userId));
                     for (var opp : results) {
-                        System.out.println("🔍 Opportunity from API: " + opp.id + " | " + opp.title);
+                        System.out.println("🔍 Opportunity from API: " + opp.id() + " | " + opp.title());
                     }
 
                     if (results.isEmpty()) {
                         event.getChannel().sendMessage("😢 No opportunities found for your profile.").queue();
                     } else {
-                        event.getChannel().sendMessage("🎯 Found " + results.size() + " opportunities for you:").queue();
+                        event.getChannel().sendMessage("🎯 Here are your top " + results.size() + " opportunities:").queue();
                         for (var opp : results) {
-                            if (!opp.url.isBlank()) {
+                            var rendered = OpportunityEmbedCache.render(opp);
+                            if (rendered.applyRow() != null) {
                                 event.getChannel()
-                                        .sendMessageEmbeds(opp.toEmbed())
-                                        .setActionRow(Button.link(opp.url, "📩 Apply"))
+                                        .sendMessageEmbeds(rendered.embed())
+                                        .setComponents(rendered.applyRow())
                                         .queue();
                             } else {
-                                event.getChannel().sendMessageEmbeds(opp.toEmbed()).queue();
+                                event.getChannel().sendMessageEmbeds(rendered.embed()).queue();
                             }
+                        }
 
-                            try {
-                                if (!storage.OpportunityDAO.existsForUser(opp, userId)) {
-                                    storage.OpportunityDAO.insertForUser(opp, userId);
-                                    System.out.println("✅ Opportunity saved to DB for " + userId);
-                                } else {
-                                    System.out.println("🔁 This opportunity already exists for " + userId);
-                                }
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
+                        // Save them all in one statement; ones the user already has are skipped
+                        try {
+                            OpportunityDAO.saveAllForUser(results, userId);
+                        } catch (Exception e) {
+                            e.printStackTrace();
                         }
                     }
 
@@ -171,13 +184,29 @@ public class CommandHandler extends ListenerAdapter {
                 String question = content.substring(5).trim();
                 event.getChannel().sendTyping().queue();
 
-                userId = event.getAuthor().getId();
+                String askerId = event.getAuthor().getId();
+
+                // Take the key before reading the profile and opportunities, so an answer built from
+                // data that changed in between is stored under the old, unreachable key
+                boolean firstTurn = !conversationMemory.hasHistory(askerId);
+                String answerKey = firstTurn || AnswerCache.isStandalone(question) ? AnswerCache.keyFor(askerId, question) : null;
+                StreamingReply reply = new StreamingReply(event.getChannel());
+                String cached = answerKey != null ? answerCache.get(answerKey) : null;
+                if (cached != null) {
+                    System.out.println("💾 Answer cache hit (" + answerCache.stats() + ")");
+                    reply.append(cached);
+                    reply.finish();
+                    conversationMemory.recordTurn(askerId, question, cached);
+                    return;
+                }
+                // Only answers that didn't see earlier turns are stored
+                String storeKey = firstTurn ? answerKey : null;
+
                 StringBuilder profileInfo = new StringBuilder();
-                StringBuilder opportunitiesInfo = new StringBuilder();
 
                 try {
                     // 1. Student profile
-                    var profileData = StudentDAO.getStudentProfile(userId);
+                    var profileData = StudentDAO.getStudentProfile(askerId);
                     if (profileData != null && !profileData.isEmpty()) {
                         profileInfo.append("📄 Student Profile:\n");
                         profileData.forEach((key, value) -> {
@@ -187,56 +216,53 @@ public class CommandHandler extends ListenerAdapter {
                         });
                     }
 
-                    // 2. Assigned opportunities
-                    var opportunities = OpportunityDAO.getAllForUser(userId);
-                    if (opportunities != null && !opportunities.isEmpty()) {
-                        opportunitiesInfo.append("📌 Assigned Opportunities:\n");
-                        for (var opp : opportunities) {
-                            opportunitiesInfo.append(formatOpportunity(opp));
+                    // 2. Assigned opportunities. The context block is only rebuilt when the profile
+                    //    or the opportunities changed; otherwise the pinned one is reused.
+                    var opportunities = OpportunityDAO.getAllForUser(askerId);
+                    StringBuilder source = new StringBuilder(profileInfo);
+                    for (var opp : opportunities) source.append(opp.id()).append(':').append(opp.contentHash()).append('\n');
+                    String contextHash = ConversationMemory.fingerprint(source);
+
+                    if (conversationMemory.pinnedContext(askerId, contextHash) == null) {
+                        int budget = ContextPacker.DEFAULT_BUDGET_TOKENS
+                                - ContextPacker.estimateTokens(profileInfo) - ContextPacker.estimateTokens(question);
+                        ContextPacker.Packed packed = ContextPacker.pack(opportunities, question + " " + profileInfo, budget);
+                        System.out.println("📦 Packed " + packed.included() + "/" + packed.total()
+                                + " opportunities into ~" + packed.tokens() + " tokens");
+
+                        StringBuilder context = new StringBuilder();
+                        if (!profileInfo.isEmpty()) {
+                            context.append("📄 Here is my student profile:\n").append(profileInfo).append("\n");
+                        }
+                        if (packed.included() > 0) {
+                            context.append("📌 These are the job opportunities assigned to me:\n")
+                                    .append("📌 Assigned Opportunities:\n").append(packed.text()).append("\n");
                         }
+                        conversationMemory.pin(askerId, contextHash, context.toString());
                     }
 
                 } catch (Exception e) {
                     e.printStackTrace(); // Log error, but continue
                 }
 
-                // Build the unified prompt
-                List<Map<String, String>> messages = new ArrayList<>();
-                messages.add(Map.of("role", "system", "content",
-                        "You are an AI career assistant in a Discord bot called Jobify CVUT. "
-                                + "You help students at FIT ČVUT find the best job opportunities from the opportunities provided. "
-                                + "Always be helpful, friendly, and use natural, engaging language. "
-                                + "Focus on career guidance, internships, CVs, and job matching based on their profile."
-                ));
-
-                StringBuilder fullPrompt = new StringBuilder();
-                if (!profileInfo.isEmpty()) {
-                    fullPrompt.append("📄 Here is my student profile:\n").append(profileInfo).append("\n");
-                }
-                if (!opportunitiesInfo.isEmpty()) {
-                    fullPrompt.append("📌 These are the job opportunities assigned to me:\n").append(opportunitiesInfo).append("\n");
-                }
-                fullPrompt.append("💬 My question is: ").append(question);
-
-                messages.add(Map.of("role", "user", "content", fullPrompt.toString()));
+                // Build the prompt from the pinned context, the earlier turns and the new question
+                List<Map<String, String>> messages = conversationMemory.buildMessages(askerId, SYSTEM_PROMPT, question);
 
                 // Debug log
                 System.out.println("🧠 Final prompt to GPT:");
                 messages.forEach(m -> System.out.println(m.get("role") + " ➜ " + m.get("content")));
 
-                try {
-                    String aiReply = gpt.ask(messages, "gpt-3.5-turbo");
-
-                    // 💬 Split response if needed
-                    int maxLength = 2000;
-                    for (int i = 0; i < aiReply.length(); i += maxLength) {
-                        int end = Math.min(aiReply.length(), i + maxLength);
-                        event.getChannel().sendMessage(aiReply.substring(i, end)).queue();
+                // Stream the answer into the channel as OpenAI generates it
+                gptScheduler.submit(askerId, GptScheduler.Priority.INTERACTIVE, messages,
+                        () -> gpt.askStreaming(messages, "gpt-3.5-turbo", reply::append)).whenComplete((aiReply, error) -> {
+                    reply.finish();
+                    if (error != null) {
+                        event.getChannel().sendMessage("⚠️ OpenAI error: " + rootCause(error).getMessage()).queue();
+                        return;
                     }
-
-                } catch (IOException e) {
-                    event.getChannel().sendMessage("⚠️ OpenAI error: " + e.getMessage()).queue();
-                }
+                    if (storeKey != null) answerCache.put(storeKey, aiReply);
+                    conversationMemory.recordTurn(askerId, question, aiReply);
+                });
 
                 return;
             }
@@ -394,135 +420,24 @@ public class CommandHandler extends ListenerAdapter {
         if (!dir.exists()) dir.mkdirs();
         File out = new File(dir, userId + ".pdf");
 
-        attachment.downloadToFile(out)
-                .thenRun(() -> {
-                    try {
-                        // 📄 Extract text from the uploaded PDF
-                        String extractedText = PdfUtils.extractText(out);
-                        StudentDAO.updateCvTextByDiscordId(userId, extractedText);
-                        System.out.println("✅ Text saved in DB for " + userId);
-
-                        // 🤖 Analyze the CV using GPT
-                        if (gpt != null) {
-                            // 🎯 Prompt GPT to extract key fields
-                            String prompt = """
-                        Analyze the following CV and return a JSON object with the following keys:
-                        - name (full name)
-                        - email (valid email address)
-                        - skills (array of skills, that are used in the projects or jobs, for example: JAVA, C)
-                        - positions (array of desired job roles like backend, frontend, devops, etc.)
-
-                        CV:
-                        --------------------
-                        """ + extractedText;
-
-                            List<Map<String, String>> messages = List.of(
-                                    Map.of("role", "user", "content", prompt)
-                            );
-
-                            String response = gpt.ask(messages, "gpt-3.5-turbo");
-                            JsonObject json = JsonParser.parseString(response).getAsJsonObject();
-
-                            String name = json.has("name") && !json.get("name").isJsonNull()
-                                    ? json.get("name").getAsString()
-                                    : null;
-
-                            String email = json.has("email") && !json.get("email").isJsonNull()
-                                    ? json.get("email").getAsString()
-                                    : null;
-
-                            String skills = json.has("skills") && json.get("skills").isJsonArray()
-                                    ? String.join(", ", toList(json.get("skills").getAsJsonArray()))
-                                    : null;
-
-                            String positions = json.has("positions") && json.get("positions").isJsonArray()
-                                    ? String.join(", ", toList(json.get("positions").getAsJsonArray()))
-                                    : null;
-
-
-                            StudentDAO.upsertStudent(name, email, skills, positions, userId);
-                            System.out.println("✅ Profile updated using AI.");
-
-                            // 📊 Ask GPT for rating and suggestions
-                            String ratingPrompt = """
-                        You are a career advisor. Read the following CV and evaluate its overall quality.
-                        Return a JSON object with two fields:
-                        - rating: a number between 1 and 10 (10 = excellent)
-                        - feedback: a list of 2–5 suggestions to improve the CV.
-
-                        CV:
-                        --------------------
-                        """ + extractedText;
-
-                            List<Map<String, String>> ratingMessages = List.of(
-                                    Map.of("role", "user", "content", ratingPrompt)
-                            );
-
-                            String ratingResponse = gpt.ask(ratingMessages, "gpt-3.5-turbo");
-                            JsonObject ratingJson = JsonParser.parseString(ratingResponse).getAsJsonObject();
-
-                            int rating = ratingJson.get("rating").getAsInt();
-                            List<String> feedbackList = toList(ratingJson.get("feedback").getAsJsonArray());
-
-                            // 📝 Format and send feedback to the user
-                            StringBuilder feedbackMsg = new StringBuilder("📝 **CV Rating: " + rating + "/10**\n");
-                            feedbackMsg.append("💡 **Suggestions to improve your CV:**\n");
-                            for (String tip : feedbackList) {
-                                feedbackMsg.append("- ").append(tip).append("\n");
-                            }
-
-                            // ✅ Send the feedback message before the final confirmation
-                            event.getChannel().sendMessage(feedbackMsg.toString()).queue();
-                        }
-
-                        // 📬 Final confirmation and main menu
-                        event.getChannel().sendMessage("✅ PDF resume received and processed.")
-                                .queue(msg -> CommandHandler.showMainMenu(event.getAuthor()));
-
-
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        event.getChannel().sendMessage("⚠️ Error processing your CV.")
-                                .queue(msg -> CommandHandler.showMainMenu(event.getAuthor()));
-                    }
-                })
-                .exceptionally(ex -> {
-                    event.getChannel().sendMessage("❌ Error uploading PDF. Please try again.").queue();
-                    return null;
-                });
+        // Download, extraction and analysis run on the CV pipeline's workers
+        boolean accepted = cvPipeline.submit(event.getChannel(), userId, attachment, out,
+                () -> CommandHandler.showMainMenu(event.getAuthor()));
+        if (!accepted) {
+            event.getChannel().sendMessage("🚦 Too many CVs are being processed right now. Please try again in a minute.").queue();
+        }
     }
 
-
-
-    private static List<String> toList(JsonArray array) {
-        List<String> list = new ArrayList<>();
-        for (JsonElement el : array) {
-            list.add(el.getAsString());
+    // Unwraps the CompletionException/ExecutionException layers added by CompletableFuture
+    static Throwable rootCause(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
         }
-        return list;
+        return t;
     }
 
 
-    // Formats a single opportunity into a readable format for GPT
-    private String formatOpportunity(bot.api.OpportunityClient.Opportunity opp) {
-        return String.format("""
-        🔹 **Title**: %s
-        🏢 **Company**: %s
-        💼 **Type**: %s
-        📅 **Deadline**: %s
-        🏠 **Home Office**: %s
-        💰 **Salary**: %s
-        🛠 **Tech Req**: %s
-        📚 **Formal Req**: %s
-        📄 **Description**: %s
-        📞 **Contact**: %s
-
-        """,
-                opp.title, opp.company, opp.type, opp.deadline,
-                opp.homeOffice, opp.wage, opp.techReq, opp.formReq,
-                opp.description, opp.contactPerson
-        );
-    }
+
 
 
 }
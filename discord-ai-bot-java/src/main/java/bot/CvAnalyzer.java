@@ -0,0 +1,202 @@
+package bot;
+
+import bot.ai.GPTClient;
+import bot.ai.GptScheduler;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import storage.CvAnalysisCacheDAO;
+import storage.CvAnalysisCacheDAO.CachedAnalysis;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the GPT analysis of an uploaded CV: profile extraction and rating.
+ * Results are cached in the database under a SHA-256 of the normalized CV text, the prompt
+ * version and the model, so re-uploading the same CV returns without calling OpenAI.
+ * The prompt version is a hash of the prompt templates, so editing a prompt automatically
+ * stops old results from being served.
+ */
+public class CvAnalyzer {
+
+    /**
+     * Parsed GPT results for one CV.
+     *
+     * @param profile the extracted fields (name, email, skills, positions), or null if that call failed
+     * @param rating  the rating and feedback, or null if that call failed
+     * @param cached  true if the result came from the cache
+     */
+    public record Result(JsonObject profile, JsonObject rating, boolean cached) {
+    }
+
+    static final String MODEL = "gpt-3.5-turbo";
+
+    // 🎯 Prompt GPT to extract key fields
+    static final String EXTRACTION_PROMPT = """
+            Analyze the following CV and return a JSON object with the following keys:
+            - name (full name)
+            - email (valid email address)
+            - skills (array of skills, that are used in the projects or jobs, for example: JAVA, C)
+            - positions (array of desired job roles like backend, frontend, devops, etc.)
+
+            CV:
+            --------------------
+            """;
+
+    // 📊 Ask GPT for rating and suggestions
+    static final String RATING_PROMPT = """
+            You are a career advisor. Read the following CV and evaluate its overall quality.
+            Return a JSON object with two fields:
+            - rating: a number between 1 and 10 (10 = excellent)
+            - feedback: a list of 2–5 suggestions to improve the CV.
+
+            CV:
+            --------------------
+            """;
+
+    /**
+     * Changes whenever a prompt template changes, which invalidates all cached results.
+     */
+    public static final String PROMPT_VERSION = sha256(EXTRACTION_PROMPT + "\u0000" + RATING_PROMPT).substring(0, 16);
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private final GPTClient gpt;
+    private final GptScheduler scheduler;
+
+    public CvAnalyzer(GPTClient gpt, GptScheduler scheduler) {
+        this.gpt = gpt;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Analyzes a CV, serving the result from the cache when the same text was seen before.
+     * GPT calls are queued as background work, behind interactive questions.
+     *
+     * @param userId the uploader's Discord ID, for fair scheduling
+     * @param cvText the text extracted from the PDF
+     * @return a future with the parsed results; it fails only when both GPT calls failed
+     */
+    public CompletableFuture<Result> analyze(String userId, String cvText) {
+        String text = normalize(cvText);
+        String key = cacheKey(text);
+
+        CachedAnalysis cached = null;
+        try {
+            cached = CvAnalysisCacheDAO.find(key);
+        } catch (Exception e) {
+            // A broken cache must not break uploads; fall through to OpenAI
+            e.printStackTrace();
+        }
+
+        if (cached != null) {
+            hits.incrementAndGet();
+            System.out.println("🗂️ CV analysis cache hit (" + stats() + ")");
+            return CompletableFuture.completedFuture(new Result(
+                    JsonParser.parseString(cached.extractionJson()).getAsJsonObject(),
+                    JsonParser.parseString(cached.ratingJson()).getAsJsonObject(),
+                    true));
+        }
+
+        misses.incrementAndGet();
+        System.out.println("🗂️ CV analysis cache miss (" + stats() + ")");
+        // The two prompts are independent, so both calls run at the same time, and one failing
+        // must not throw away the other's result
+        CompletableFuture<JsonObject> profile = ask(userId, EXTRACTION_PROMPT + text);
+        CompletableFuture<JsonObject> rating = ask(userId, RATING_PROMPT + text);
+        return CompletableFuture.allOf(profile, rating).handle((ignored, error) -> {
+            JsonObject p = valueOrNull(profile);
+            JsonObject r = valueOrNull(rating);
+            if (p == null && r == null) throw new CompletionException(error);
+            if (error != null) System.out.println("⚠️ CV analysis call failed: " + CommandHandler.rootCause(error));
+            // Only cache results that the caller can actually use
+            if (p != null && isUsableRating(r)) store(key, p, r);
+            return new Result(p, r, false);
+        });
+    }
+
+    /**
+     * Returns true if a rating has the fields needed to show it to the user.
+     */
+    public static boolean isUsableRating(JsonObject rating) {
+        return rating != null && rating.has("rating") && rating.has("feedback");
+    }
+
+    /**
+     * Returns hit/miss counters and the hit rate since startup.
+     */
+    public static String stats() {
+        long h = hits.get(), m = misses.get();
+        long total = h + m;
+        return "hits=" + h + ", misses=" + m
+                + ", hitRate=" + (total == 0 ? "-" : String.format("%.1f%%", 100.0 * h / total));
+    }
+
+    /**
+     * Deletes cached results made with older prompt templates.
+     */
+    public static void pruneStaleCache() {
+        try {
+            int deleted = CvAnalysisCacheDAO.deleteOtherPromptVersions(PROMPT_VERSION);
+            if (deleted > 0) {
+                System.out.println("🧹 Removed " + deleted + " CV analyses from older prompt versions");
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private CompletableFuture<JsonObject> ask(String userId, String prompt) {
+        List<Map<String, String>> messages = List.of(Map.of("role", "user", "content", prompt));
+        return scheduler.submit(userId, GptScheduler.Priority.BACKGROUND, messages,
+                () -> gpt.askAsync(messages, MODEL)).thenApply(reply -> JsonParser.parseString(reply).getAsJsonObject());
+    }
+
+    private static JsonObject valueOrNull(CompletableFuture<JsonObject> future) {
+        return future.isCompletedExceptionally() ? null : future.join();
+    }
+
+    private static void store(String key, JsonObject profile, JsonObject rating) {
+        try {
+            CvAnalysisCacheDAO.save(key, PROMPT_VERSION, MODEL, new CachedAnalysis(profile.toString(), rating.toString()));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Normalizes extracted CV text so that re-exports of the same document hash the same:
+     * Unicode compatibility forms, line endings, and runs of spaces and blank lines.
+     */
+    static String normalize(String text) {
+        String s = Normalizer.normalize(text, Normalizer.Form.NFKC).replace("\r\n", "\n").replace('\r', '\n');
+        StringBuilder sb = new StringBuilder(s.length());
+        for (String line : s.split("\n")) {
+            String trimmed = line.strip().replaceAll("\\s+", " ");
+            if (!trimmed.isEmpty()) sb.append(trimmed).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String cacheKey(String normalizedText) {
+        return sha256(normalizedText + "\u0000" + PROMPT_VERSION + "\u0000" + MODEL);
+    }
+
+    private static String sha256(String s) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package bot;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+import storage.StudentDAO;
+import util.PdfUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes uploaded CVs in explicit stages: download, text extraction, GPT analysis
+ * (profile extraction and rating in parallel) and saving the profile.
+ * Jobs wait in a bounded queue and are run by a fixed number of workers. A worker holds its
+ * slot until the job is done, so at most {@code cv.pipeline.workers} PDFs are open and at most
+ * twice that many OpenAI calls are in flight, however many CVs are uploaded at once. When the
+ * queue is full, new uploads are turned away instead of piling up.
+ */
+public class CvPipeline {
+
+    private static final int WORKERS = Integer.getInteger("cv.pipeline.workers", 2);
+    private static final int QUEUE_CAPACITY = Integer.getInteger("cv.pipeline.queueCapacity", 20);
+
+    private final CvAnalyzer analyzer; // null when GPT is disabled
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    public CvPipeline(CvAnalyzer analyzer) {
+        this.analyzer = analyzer;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(WORKERS, WORKERS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "cv-pipeline-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues a CV for processing.
+     *
+     * @param channel    the channel to report progress and results to
+     * @param userId     the uploader's Discord ID
+     * @param attachment the uploaded PDF
+     * @param out        where to keep the PDF once it has been processed; each job downloads to
+     *                   its own file first, so two uploads by the same user don't collide
+     * @param onFinished called with the user's channel after the job ends, successful or not
+     * @return false if the queue is full and the CV was not accepted
+     */
+    public boolean submit(MessageChannel channel, String userId, Message.Attachment attachment, File out,
+                          Runnable onFinished) {
+        Progress progress = new Progress(channel);
+        int ahead = executor.getQueue().size(); // Jobs waiting before this one is added
+        try {
+            executor.execute(() -> run(progress, channel, userId, attachment, out, onFinished));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            System.out.println("🚦 CV pipeline full, rejected upload from " + userId + " (" + stats() + ")");
+            return false;
+        }
+
+        // A worker may already have posted its first stage; the queued note must not overwrite it
+        progress.first(ahead > 0
+                ? "⏳ Your CV is queued (" + ahead + " ahead of you)..."
+                : "⏳ Your CV is queued...");
+        return true;
+    }
+
+    /**
+     * Returns queue and throughput counters for logging.
+     */
+    public String stats() {
+        return "active=" + executor.getActiveCount() + ", queued=" + executor.getQueue().size()
+                + ", completed=" + completed + ", failed=" + failed + ", rejected=" + rejected;
+    }
+
+    private void run(Progress progress, MessageChannel channel, String userId, Message.Attachment attachment,
+                     File out, Runnable onFinished) {
+        long start = System.nanoTime();
+
+        // 1) Download
+        progress.update("📥 Downloading your CV...");
+        File pdf = null;
+        try {
+            pdf = File.createTempFile(userId + "-", ".pdf.part", out.getAbsoluteFile().getParentFile());
+            pdf = attachment.downloadToFile(pdf).get();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            if (pdf != null) pdf.delete();
+            progress.update("❌ Error uploading PDF. Please try again.");
+            progress.done().whenComplete((ignored, error) -> onFinished.run());
+            return;
+        }
+
+        try {
+            // 2) Extract text from the PDF and store it
+            progress.update("📄 Reading your CV...");
+            String extractedText = PdfUtils.extractText(pdf);
+            StudentDAO.updateCvTextByDiscordId(userId, extractedText);
+            System.out.println("✅ Text saved in DB for " + userId);
+
+            if (analyzer != null) {
+                // 3) Profile extraction and rating, both at once (or straight from the cache)
+                progress.update("🤖 Analyzing your CV...");
+                CvAnalyzer.Result result = analyzer.analyze(userId, extractedText).get();
+
+                // 4) Save the extracted profile and send the feedback; either may be missing
+                // when its GPT call failed, the other is still used
+                if (result.profile() != null) {
+                    progress.update("💾 Updating your profile...");
+                    saveProfile(userId, result.profile());
+                } else {
+                    channel.sendMessage("⚠️ I couldn't read your details from the CV this time; your skills and positions were not updated.").queue();
+                }
+                if (CvAnalyzer.isUsableRating(result.rating())) {
+                    channel.sendMessage(formatFeedback(result.rating())).queue();
+                } else {
+                    channel.sendMessage("⚠️ I couldn't rate your CV this time. Upload it again later for feedback.").queue();
+                }
+            }
+
+            completed.incrementAndGet();
+            progress.update("✅ PDF resume received and processed.");
+            System.out.println("📑 CV processed for " + userId + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms (" + stats() + ")");
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            CommandHandler.rootCause(e).printStackTrace();
+            progress.update("⚠️ Error processing your CV.");
+        } finally {
+            keep(pdf, out);
+            progress.done().whenComplete((ignored, error) -> onFinished.run());
+        }
+    }
+
+    // Replaces the user's stored PDF with this job's download
+    private static void keep(File pdf, File out) {
+        try {
+            Files.move(pdf.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            pdf.delete();
+        }
+    }
+
+    private static void saveProfile(String userId, JsonObject json) throws Exception {
+        String name = json.has("name") && !json.get("name").isJsonNull()
+                ? json.get("name").getAsString()
+                : null;
+
+        String email = json.has("email") && !json.get("email").isJsonNull()
+                ? json.get("email").getAsString()
+                : null;
+
+        String skills = json.has("skills") && json.get("skills").isJsonArray()
+                ? String.join(", ", toList(json.get("skills").getAsJsonArray()))
+                : null;
+
+        String positions = json.has("positions") && json.get("positions").isJsonArray()
+                ? String.join(", ", toList(json.get("positions").getAsJsonArray()))
+                : null;
+
+        StudentDAO.upsertStudent(name, email, skills, positions, userId);
+        System.out.println("✅ Profile updated using AI.");
+    }
+
+    // 📝 Format the rating and suggestions for the user
+    private static String formatFeedback(JsonObject ratingJson) {
+        int rating = ratingJson.get("rating").getAsInt();
+        List<String> feedbackList = toList(ratingJson.get("feedback").getAsJsonArray());
+
+        StringBuilder feedbackMsg = new StringBuilder("📝 **CV Rating: " + rating + "/10**\n");
+        feedbackMsg.append("💡 **Suggestions to improve your CV:**\n");
+        for (String tip : feedbackList) {
+            feedbackMsg.append("- ").append(tip).append("\n");
+        }
+        return feedbackMsg.toString();
+    }
+
+    private static List<String> toList(JsonArray array) {
+        List<String> list = new ArrayList<>();
+        for (JsonElement el : array) {
+            list.add(el.getAsString());
+        }
+        return list;
+    }
+
+    /**
+     * One status message per job, edited as the job moves through the stages.
+     * Updates are chained so they are applied in order.
+     */
+    private static class Progress {
+        private final MessageChannel channel;
+        private CompletableFuture<Message> status;
+
+        Progress(MessageChannel channel) {
+            this.channel = channel;
+        }
+
+        synchronized void update(String text) {
+            if (status == null) {
+                status = channel.sendMessage(text).submit();
+            } else {
+                status = status.thenCompose(msg -> msg.editMessage(text).submit());
+            }
+        }
+
+        // Posts the text only if nothing has been posted yet
+        synchronized void first(String text) {
+            if (status == null) update(text);
+        }
+
+        synchronized CompletableFuture<Void> done() {
+            return status == null ? CompletableFuture.completedFuture(null) : status.thenAccept(m -> { });
+        }
+    }
+}
@@ -1,11 +1,24 @@
 package bot.ai;
 
-import com.google.gson.*;
+import bot.http.HttpTransport;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 import okhttp3.*;
+import okio.BufferedSink;
+import okio.BufferedSource;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * GPTClient is responsible for communicating with the OpenAI Chat Completions API.
@@ -17,10 +30,18 @@ public class GPTClient {
 
     // OkHttp client used to execute HTTP requests
     private final OkHttpClient http;
-    // Gson instance for JSON serialization/deserialization
-    private final Gson gson;
     // API key for authenticating with OpenAI
     private final String apiKey;
+    // Optional observer of response status and headers (rate limits)
+    private volatile ResponseListener responseListener;
+
+    /**
+     * Receives the status code and headers of every OpenAI response, e.g. to track the
+     * {@code x-ratelimit-*} and {@code retry-after} headers.
+     */
+    public interface ResponseListener {
+        void onResponse(int code, Headers headers);
+    }
 
     /**
      * Constructs a new GPTClient with the provided API key.
@@ -28,13 +49,22 @@ public class GPTClient {
      * @param apiKey the OpenAI API key
      */
     public GPTClient(String apiKey) {
-        this.http = new OkHttpClient();               // HTTP client initialization
-        this.gson = new GsonBuilder().create();       // Gson for handling JSON
+        this.http = HttpTransport.client(HttpTransport.OPENAI); // Shared transport with OpenAI timeouts
         this.apiKey = apiKey;                         // Store the API key for future requests
     }
 
+    /**
+     * Registers a listener that sees the status and headers of every response.
+     *
+     * @param listener the listener, or null to remove it
+     */
+    public void setResponseListener(ResponseListener listener) {
+        this.responseListener = listener;
+    }
+
     /**
      * Sends a chat completion request to OpenAI and returns the generated content.
+     * Blocks the calling thread; prefer {@link #askAsync} on Discord event threads.
      *
      * @param messages the list of messages in the conversation (each with "role" and "content")
      * @param model    the model name to use (e.g., "gpt-3.5-turbo")
@@ -42,60 +72,259 @@ public class GPTClient {
      * @throws IOException if the HTTP call fails or returns a non-success status
      */
     public String ask(List<Map<String, String>> messages, String model) throws IOException {
-        // 1) Build the JSON payload for the request
-        JsonObject payload = new JsonObject();
-        payload.addProperty("model", model);          // Set the model to use (e.g., gpt-3.5-turbo)
-
-        JsonArray arr = new JsonArray();              // Array to hold the message history
-        for (Map<String, String> msg : messages) {
-            JsonObject obj = new JsonObject();
-            obj.addProperty("role", msg.get("role"));         // e.g., "user", "assistant", or "system"
-            obj.addProperty("content", msg.get("content"));   // actual text content
-            arr.add(obj);
+        // Execute the request and capture the response
+        try (Response resp = http.newCall(buildRequest(messages, model, false)).execute()) {
+            notifyListener(resp);
+            return readReply(resp);
+        }
+    }
+
+    /**
+     * Sends a chat completion request without blocking, using the transport's default timeouts.
+     *
+     * @see #askAsync(List, String, Duration)
+     */
+    public CompletableFuture<String> askAsync(List<Map<String, String>> messages, String model) {
+        return askAsync(messages, model, null);
+    }
+
+    /**
+     * Sends a chat completion request without blocking the calling thread.
+     * The returned future completes on an OkHttp dispatcher thread. Cancelling the future
+     * cancels the underlying HTTP call.
+     *
+     * @param messages the list of messages in the conversation (each with "role" and "content")
+     * @param model    the model name to use (e.g., "gpt-3.5-turbo")
+     * @param timeout  timeout for the whole call, or null for the transport default
+     * @return a future with the assistant's response content, failing with an IOException on error
+     */
+    public CompletableFuture<String> askAsync(List<Map<String, String>> messages, String model, Duration timeout) {
+        return enqueue(buildRequest(messages, model, false), timeout, this::readReply);
+    }
+
+    /**
+     * Sends a streaming chat completion request ({@code stream: true}) and hands each piece of
+     * generated text to {@code onDelta} as soon as it arrives. Deltas are delivered in order on
+     * an OkHttp dispatcher thread, so the consumer should return quickly.
+     *
+     * @param messages the list of messages in the conversation (each with "role" and "content")
+     * @param model    the model name to use (e.g., "gpt-3.5-turbo")
+     * @param onDelta  receives each text fragment as it is generated
+     * @return a future with the complete reply, failing with an IOException on error
+     */
+    public CompletableFuture<String> askStreaming(List<Map<String, String>> messages, String model,
+                                                  Consumer<String> onDelta) {
+        return enqueue(buildRequest(messages, model, true), null, resp -> readStream(resp, onDelta));
+    }
+
+    // Reads a response on the dispatcher thread and produces the reply text
+    private interface ReplyReader {
+        String read(Response resp) throws IOException;
+    }
+
+    /**
+     * Enqueues a call and completes the returned future from its response.
+     * Cancelling the future cancels the underlying HTTP call.
+     */
+    private CompletableFuture<String> enqueue(Request request, Duration timeout, ReplyReader reader) {
+        Call call = http.newCall(request);
+        if (timeout != null) {
+            call.timeout().timeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
         }
-        payload.add("messages", arr);
-        String jsonPayload = payload.toString();      // Convert payload to JSON string
 
-        // 2) Debug: print the endpoint URL and the JSON payload
-        System.out.println("🔗 OpenAI URL: " + ENDPOINT);
-        System.out.println("📦 Payload: " + jsonPayload);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        future.whenComplete((reply, error) -> {
+            if (future.isCancelled()) call.cancel(); // Stop the HTTP call if nobody wants the answer
+        });
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call c, Response resp) {
+                try (resp) {
+                    notifyListener(resp);
+                    future.complete(reader.read(resp));
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        return future;
+    }
 
-        // 3) Create the request body with the JSON payload
-        RequestBody body = RequestBody.create(
-                jsonPayload,
-                MediaType.get("application/json; charset=utf-8")
-        );
+    /**
+     * Builds the HTTP POST request for a chat completion, optionally asking for a
+     * server-sent event stream.
+     */
+    private Request buildRequest(List<Map<String, String>> messages, String model, boolean stream) {
+        // Debug: a one-line summary instead of the whole payload, which can hold a full CV
+        long chars = 0;
+        for (Map<String, String> msg : messages) chars += msg.getOrDefault("content", "").length();
+        System.out.println("🔗 OpenAI request: model=" + model + ", messages=" + messages.size()
+                + ", chars=" + chars + (stream ? ", stream" : ""));
 
-        // 4) Build the HTTP POST request with authorization header
-        Request request = new Request.Builder()
+        // Build the HTTP POST request with authorization header; the JSON is written on send
+        return new Request.Builder()
                 .url(ENDPOINT)                                     // API endpoint
                 .addHeader("Authorization", "Bearer " + apiKey)   // Authentication using bearer token
-                .addHeader("Content-Type", "application/json")    // Indicate we’re sending JSON
-                .post(body)                                       // Use POST method
+                .post(new ChatRequestBody(messages, model, stream))
                 .build();
+    }
+
+    /**
+     * Request body that serializes the chat payload straight into the connection's sink with a
+     * {@link JsonWriter}, so no JSON tree or payload string is built in memory. It can be
+     * written more than once, which OkHttp needs for retries and redirects.
+     */
+    private static class ChatRequestBody extends RequestBody {
+        private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+        private final List<Map<String, String>> messages;
+        private final String model;
+        private final boolean stream;
+
+        ChatRequestBody(List<Map<String, String>> messages, String model, boolean stream) {
+            this.messages = messages;
+            this.model = model;
+            this.stream = stream;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            // Don't close the writer: that would close the sink, which belongs to OkHttp
+            JsonWriter json = new JsonWriter(new OutputStreamWriter(sink.outputStream(), StandardCharsets.UTF_8));
+            json.beginObject();
+            json.name("model").value(model);
+            json.name("messages").beginArray();
+            for (Map<String, String> msg : messages) {
+                json.beginObject();
+                json.name("role").value(msg.get("role"));         // e.g., "user", "assistant", or "system"
+                json.name("content").value(msg.get("content"));   // actual text content
+                json.endObject();
+            }
+            json.endArray();
+            if (stream) json.name("stream").value(true);
+            json.endObject();
+            json.flush();
+        }
+    }
+
+    private void notifyListener(Response resp) {
+        ResponseListener listener = responseListener;
+        if (listener == null) return;
+        try {
+            listener.onResponse(resp.code(), resp.headers());
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // A broken listener must not fail the call
+        }
+    }
+
+    /**
+     * Checks the response status and extracts the assistant's reply, reading only
+     * {@code choices[0].message.content} from the response stream and skipping the rest.
+     */
+    private String readReply(Response resp) throws IOException {
+        // Debug: print the HTTP status code
+        System.out.println("🔄 Response code: " + resp.code());
+
+        // Throw an exception if the request was not successful
+        if (!resp.isSuccessful()) throw failure(resp);
+
+        try (JsonReader reader = new JsonReader(resp.body().charStream())) {
+            String content = readChoiceContent(reader, "message");
+            if (content == null) throw new IOException("OpenAI response has no message content");
+            return content.trim();
+        } catch (IllegalStateException | MalformedJsonException e) {
+            throw new IOException("Malformed response from OpenAI", e);
+        }
+    }
+
+    /**
+     * Reads a server-sent event stream of chat completion chunks, passing every content delta
+     * to {@code onDelta}, and returns the concatenated reply.
+     */
+    private String readStream(Response resp, Consumer<String> onDelta) throws IOException {
+        if (!resp.isSuccessful()) throw failure(resp);
+
+        StringBuilder reply = new StringBuilder();
+        BufferedSource source = resp.body().source();
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            // Each event is a "data: {...}" line; blank lines separate events
+            if (!line.startsWith("data:")) continue;
+            String data = line.substring(5).trim();
+            if (data.equals("[DONE]")) break;
+
+            String piece;
+            try (JsonReader reader = new JsonReader(new StringReader(data))) {
+                piece = readChoiceContent(reader, "delta");
+            } catch (IllegalStateException e) {
+                throw new IOException("Malformed stream chunk from OpenAI", e);
+            }
+            if (piece == null || piece.isEmpty()) continue;
 
-        // 5) Execute the request and capture the response
-        try (Response resp = http.newCall(request).execute()) {
-            int code = resp.code();  // HTTP status code
-            String respBody = resp.body() != null ? resp.body().string() : "";
+            reply.append(piece);
+            onDelta.accept(piece);
+        }
+        return reply.toString().trim();
+    }
 
-            // Debug: print the HTTP status code and full response body
-            System.out.println("🔄 Response code: " + code);
-            System.out.println("📬 Response body: " + respBody);
+    // Logs the error body (they are short) and turns it into an exception
+    private static IOException failure(Response resp) throws IOException {
+        String respBody = resp.body() != null ? resp.body().string() : "";
+        System.out.println("📬 Response body: " + respBody);
+        return new IOException("Unexpected response from OpenAI: " + resp.code());
+    }
 
-            // Throw an exception if the request was not successful
-            if (!resp.isSuccessful()) {
-                throw new IOException("Unexpected response from OpenAI: " + code);
+    /**
+     * Walks a chat completion object to {@code choices[0].<field>.content} and returns it,
+     * or null if it is missing. Every other value is skipped without being materialized.
+     */
+    private static String readChoiceContent(JsonReader reader, String field) throws IOException {
+        String content = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("choices") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
             }
+            reader.beginArray();
+            if (reader.hasNext()) content = readChoice(reader, field);
+            while (reader.hasNext()) reader.skipValue(); // Only the first choice is used
+            reader.endArray();
+        }
+        reader.endObject();
+        return content;
+    }
 
-            // 6) Parse the JSON response and extract the assistant's message content
-            JsonObject root = gson.fromJson(respBody, JsonObject.class);
-            return root
-                    .getAsJsonArray("choices")             // Get the "choices" array
-                    .get(0).getAsJsonObject()              // Take the first choice
-                    .getAsJsonObject("message")            // Access the "message" object
-                    .get("content").getAsString()          // Extract the assistant's reply
-                    .trim();
+    private static String readChoice(JsonReader reader, String field) throws IOException {
+        String content = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals(field) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("content") && reader.peek() == JsonToken.STRING) {
+                    content = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
         }
+        reader.endObject();
+        return content;
     }
 }
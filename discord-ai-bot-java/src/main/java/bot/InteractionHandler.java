@@ -1,6 +1,8 @@
 package bot;
 
+import bot.api.OpportunityCatalog;
 import bot.api.OpportunityClient;
+import bot.api.OpportunityEmbedCache;
 import net.dv8tion.jda.api.events.interaction.ModalInteractionEvent;
 import net.dv8tion.jda.api.interactions.modals.Modal;
 import net.dv8tion.jda.api.interactions.components.text.TextInput;
@@ -17,7 +19,6 @@ import storage.StudentDAO;
 import net.dv8tion.jda.api.EmbedBuilder;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -34,6 +35,12 @@ import static net.dv8tion.jda.api.interactions.components.text.TextInputStyle.PA
  */
 public class InteractionHandler extends ListenerAdapter {
 
+    private final OpportunityCatalog catalog;
+
+    public InteractionHandler(OpportunityCatalog catalog) {
+        this.catalog = catalog;
+    }
+
     /**
      * Responds to button clicks based on their component ID.
      * Each button triggers a different workflow depending on its ID.
@@ -242,31 +249,29 @@ public class InteractionHandler extends ListenerAdapter {
                     String skills = profile.get("Skills");
                     String interest = profile.get("Career Interest");
 
-                    Set<OpportunityClient.Opportunity> results =
-                            OpportunityClient.searchMultipleKeywords(skills + " " + interest);
+                    List<OpportunityClient.Opportunity> results = catalog.match(skills + " " + interest, StudentDAO.getCvText(userId));
 
                     if (results.isEmpty()) {
                         event.getHook().sendMessage("😢 No opportunities found for your profile.")
                                 .queue(msg -> CommandHandler.showMainMenu(event.getUser()));
                     } else {
-                        event.getHook().sendMessage("🎯 Found " + results.size() + " opportunities for you:")
+                        event.getHook().sendMessage("🎯 Here are your top " + results.size() + " opportunities:")
                                 .queue(msg -> {
-                                    for (var opp : results) {
-                                        try {
-                                            if (!OpportunityDAO.existsForUser(opp, userId)) {
-                                                OpportunityDAO.insertForUser(opp, userId);
-
-                                            }
-                                        } catch (Exception ex) {
-                                            ex.printStackTrace();
-                                        }
+                                    // Save them all in one statement; ones the user already has are skipped
+                                    try {
+                                        OpportunityDAO.saveAllForUser(results, userId);
+                                    } catch (Exception ex) {
+                                        ex.printStackTrace();
+                                    }
 
-                                        if (!opp.url.isBlank()) {
-                                            event.getChannel().sendMessageEmbeds(opp.toEmbed())
-                                                    .addActionRow(Button.link(opp.url, "📩 Apply"))
+                                    for (var opp : results) {
+                                        var rendered = OpportunityEmbedCache.render(opp);
+                                        if (rendered.applyRow() != null) {
+                                            event.getChannel().sendMessageEmbeds(rendered.embed())
+                                                    .setComponents(rendered.applyRow())
                                                     .queue();
                                         } else {
-                                            event.getChannel().sendMessageEmbeds(opp.toEmbed()).queue();
+                                            event.getChannel().sendMessageEmbeds(rendered.embed()).queue();
                                         }
                                     }
                                     // Show menu after listing jobs
@@ -0,0 +1,104 @@
+package bot;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows a reply in Discord while it is still being generated.
+ * The first text is posted right away; after that the message is edited at most once per
+ * {@code discord.streamEditIntervalMs} (default 1200 ms) to stay within Discord's edit rate
+ * limits. When the text passes 2000 characters, the current message is finalized and the
+ * rest continues in a new message. Sends and edits are chained, so they reach Discord in order.
+ */
+public class StreamingReply {
+
+    private static final int MAX_LENGTH = 2000; // Discord message limit
+    private static final long EDIT_INTERVAL_MS = Long.getLong("discord.streamEditIntervalMs", 1200);
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "streaming-reply");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final MessageChannel channel;
+    private final StringBuilder text = new StringBuilder();
+    private int messageStart = 0;               // Offset in 'text' where the current message begins
+    private String shown = "";                  // What the current message displays
+    private CompletableFuture<Message> current; // Last send/edit of the current message, null before the first send
+    private boolean flushScheduled = false;
+    private boolean finished = false;
+
+    public StreamingReply(MessageChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Appends generated text. The first fragment is shown immediately; later ones are batched
+     * into the next throttled edit.
+     */
+    public synchronized void append(String delta) {
+        if (finished) return;
+        text.append(delta);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            long delay = current == null ? 0 : EDIT_INTERVAL_MS;
+            scheduler.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Flushes whatever is still pending and stops accepting text.
+     *
+     * @return a future that completes once the last send or edit has gone through
+     */
+    public synchronized CompletableFuture<Void> finish() {
+        finished = true;
+        flush();
+        return current == null ? CompletableFuture.completedFuture(null) : current.thenAccept(m -> { });
+    }
+
+    private synchronized void flush() {
+        flushScheduled = false;
+
+        // Roll over to a new message for every full 2000 characters
+        while (text.length() - messageStart > MAX_LENGTH) {
+            int end = splitPoint();
+            show(text.substring(messageStart, end));
+            messageStart = end;
+            current = null;
+            shown = "";
+        }
+
+        String pending = text.substring(messageStart);
+        if (!pending.isBlank() && !pending.equals(shown)) show(pending);
+    }
+
+    // Prefer to break at a newline or space in the second half of the window
+    private int splitPoint() {
+        int limit = messageStart + MAX_LENGTH;
+        for (int i = limit; i > messageStart + MAX_LENGTH / 2; i--) {
+            char c = text.charAt(i - 1);
+            if (c == '\n' || c == ' ') return i;
+        }
+        return limit;
+    }
+
+    private void show(String content) {
+        shown = content;
+        if (current == null) {
+            current = channel.sendMessage(content).submit();
+        } else {
+            current = current.thenCompose(msg -> msg.editMessage(content).submit());
+        }
+        current.exceptionally(e -> {
+            System.out.println("⚠️ Could not update streamed reply: " + e.getMessage());
+            return null;
+        });
+    }
+}
@@ -0,0 +1,108 @@
+package bot.ai;
+
+import storage.UserDataVersions;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of GPT answers to {@code !ask} questions.
+ * An answer is keyed by the user, the normalized question, and the versions of the user's
+ * profile and saved opportunities from {@link UserDataVersions}, so any DAO write that changes
+ * the inputs makes the old answer unreachable. The date is part of the key as well, because
+ * expired opportunities drop out of a user's list at midnight without any write.
+ * Answers are only stored when the user had no conversation history, so a cached answer never
+ * depends on earlier turns. A first question is looked up as usual; a follow-up is looked up
+ * only if it is the {@link #STANDALONE_QUESTION} the "Ask GPT" help suggests, which doesn't
+ * refer to earlier turns. Conversations go idle after {@code ask.memory.idleMinutes} (30), so
+ * without that exception a student re-asking it within the 60 minute TTL would usually miss.
+ * Entries expire after {@code ask.answerCache.ttlMinutes} (default 60) and the cache holds at
+ * most {@code ask.answerCache.maxEntries} (default 1000), evicting the least recently used.
+ */
+public class AnswerCache {
+
+    private static final int MAX_ENTRIES = Integer.getInteger("ask.answerCache.maxEntries", 1_000);
+    private static final long TTL_MILLIS = Long.getLong("ask.answerCache.ttlMinutes", 60) * 60_000;
+
+    /**
+     * The prompt the "Ask GPT" help text suggests for job matching.
+     */
+    public static final String STANDALONE_QUESTION =
+            "Based on my profile and the opportunities below, please recommend the one that fits me best";
+
+    private record Entry(String answer, long storedAt) {
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Builds the cache key for a question from the current data versions. Take the key
+     * before calling OpenAI, so an answer computed from old data is stored under the old key.
+     *
+     * @param userId   the asking user's Discord ID
+     * @param question the question as typed
+     * @return the cache key
+     */
+    public static String keyFor(String userId, String question) {
+        return userId
+                + "|" + UserDataVersions.profileVersion(userId)
+                + "|" + UserDataVersions.opportunityVersion(userId)
+                + "|" + LocalDate.now()
+                + "|" + normalize(question);
+    }
+
+    /**
+     * Returns true if the question is answered the same way whatever was said before it.
+     */
+    public static boolean isStandalone(String question) {
+        return normalize(question).equals(normalize(STANDALONE_QUESTION));
+    }
+
+    /**
+     * Returns the cached answer for a key, or null if there is none or it has expired.
+     */
+    public synchronized String get(String key) {
+        Entry e = entries.get(key);
+        if (e != null && System.currentTimeMillis() - e.storedAt() > TTL_MILLIS) {
+            entries.remove(key);
+            e = null;
+        }
+        if (e == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return e.answer();
+    }
+
+    public synchronized void put(String key, String answer) {
+        entries.put(key, new Entry(answer, System.currentTimeMillis()));
+    }
+
+    /**
+     * Returns hit/miss counters and size for logging.
+     */
+    public synchronized String stats() {
+        long h = hits.get(), m = misses.get();
+        return "hits=" + h + ", misses=" + m + ", size=" + entries.size()
+                + ", hitRate=" + (h + m == 0 ? "-" : String.format("%.1f%%", 100.0 * h / (h + m)));
+    }
+
+    // Case, surrounding punctuation and extra whitespace don't change the question
+    static String normalize(String question) {
+        return question.toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .replaceAll("^[\\p{Punct}\\s]+|[\\p{Punct}\\s]+$", "");
+    }
+}
@@ -0,0 +1,151 @@
+package bot.ai;
+
+import bot.api.OpportunityClient.Opportunity;
+import bot.search.Bm25Index;
+
+import java.util.*;
+
+/**
+ * Packs a user's saved opportunities into a prompt without exceeding a token budget.
+ * Opportunities are ranked by BM25 relevance to the question and the student's profile.
+ * The best ones get the full format, the next ones a short format (title, company,
+ * tech requirements, description excerpt), and the rest a single line. When even one
+ * line no longer fits, the remaining opportunities are summarized as a count, so prompt
+ * size stays bounded however many opportunities a user has saved.
+ */
+public class ContextPacker {
+
+    /**
+     * Default budget for the whole user prompt, configurable with {@code ask.context.maxTokens}.
+     */
+    public static final int DEFAULT_BUDGET_TOKENS = Integer.getInteger("ask.context.maxTokens", 1500);
+
+    // How many opportunities (by rank) may use each of the richer formats
+    private static final int FULL_SLOTS = 3;
+    private static final int SHORT_SLOTS = 7;
+
+    private static final int FULL_DESCRIPTION_CHARS = 600;
+    private static final int SHORT_DESCRIPTION_CHARS = 160;
+    private static final int SHORT_TECH_REQ_CHARS = 200;
+    private static final int MORE_LINE_TOKENS = estimateTokens(moreLine(99_999));
+
+    /**
+     * Result of packing.
+     *
+     * @param text     the formatted opportunities block (empty if none)
+     * @param tokens   estimated tokens in {@code text}
+     * @param included number of opportunities written out
+     * @param total    number of opportunities offered
+     */
+    public record Packed(String text, int tokens, int included, int total) {
+    }
+
+    /**
+     * Estimates the token count of a text locally, at roughly four characters per token.
+     * Good enough to bound the prompt without calling a tokenizer.
+     */
+    public static int estimateTokens(CharSequence text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    /**
+     * Formats as many opportunities as fit into the budget, most relevant first.
+     *
+     * @param opportunities  the user's saved opportunities
+     * @param relevanceQuery text to rank by, e.g. the question plus the profile
+     * @param budgetTokens   maximum estimated tokens for the returned block
+     * @return the packed block and what went into it
+     */
+    public static Packed pack(List<Opportunity> opportunities, String relevanceQuery, int budgetTokens) {
+        if (opportunities == null || opportunities.isEmpty()) return new Packed("", 0, 0, 0);
+
+        List<Opportunity> ranked = rank(opportunities, relevanceQuery);
+        StringBuilder sb = new StringBuilder();
+        int used = 0;
+        int included = 0;
+
+        for (Opportunity opp : ranked) {
+            // Keep room for the "…and N more" line unless this is the last opportunity
+            int limit = budgetTokens - (included < ranked.size() - 1 ? MORE_LINE_TOKENS : 0);
+            String entry = null;
+            for (int tier = tierFor(included); tier <= 2; tier++) {
+                String candidate = format(opp, tier);
+                if (used + estimateTokens(candidate) <= limit) {
+                    entry = candidate;
+                    break;
+                }
+            }
+            if (entry == null) break; // Not even a single line fits
+            sb.append(entry);
+            used += estimateTokens(entry);
+            included++;
+        }
+
+        int left = ranked.size() - included;
+        if (left > 0) {
+            String more = moreLine(left);
+            sb.append(more);
+            used += estimateTokens(more);
+        }
+        return new Packed(sb.toString(), used, included, ranked.size());
+    }
+
+    private static String moreLine(int left) {
+        return "…and " + left + " more saved opportunities not shown.\n";
+    }
+
+    // Relevant opportunities first (by BM25), then the rest in their original order
+    private static List<Opportunity> rank(List<Opportunity> opportunities, String query) {
+        List<Opportunity> ranked = new ArrayList<>(Bm25Index.build(opportunities).topK(query, opportunities.size()));
+        Set<Opportunity> seen = new HashSet<>(ranked);
+        for (Opportunity opp : opportunities) {
+            if (seen.add(opp)) ranked.add(opp);
+        }
+        return ranked;
+    }
+
+    private static int tierFor(int rank) {
+        if (rank < FULL_SLOTS) return 0;
+        if (rank < FULL_SLOTS + SHORT_SLOTS) return 1;
+        return 2;
+    }
+
+    private static String format(Opportunity opp, int tier) {
+        return switch (tier) {
+            case 0 -> String.format("""
+                    🔹 **Title**: %s
+                    🏢 **Company**: %s
+                    💼 **Type**: %s
+                    📅 **Deadline**: %s
+                    🏠 **Home Office**: %s
+                    💰 **Salary**: %s
+                    🛠 **Tech Req**: %s
+                    📚 **Formal Req**: %s
+                    📄 **Description**: %s
+                    📞 **Contact**: %s
+
+                    """,
+                    opp.title(), opp.company(), opp.type(), opp.deadline(),
+                    opp.homeOffice(), opp.wage(), opp.techReq(), opp.formReq(),
+                    excerpt(opp.description(), FULL_DESCRIPTION_CHARS), opp.contactPerson());
+            case 1 -> String.format("""
+                    🔹 **%s** at %s (%s, deadline %s)
+                    🛠 %s
+                    📄 %s
+
+                    """,
+                    opp.title(), opp.company(), opp.type(), opp.deadline(),
+                    excerpt(opp.techReq(), SHORT_TECH_REQ_CHARS),
+                    excerpt(opp.description(), SHORT_DESCRIPTION_CHARS));
+            default -> "🔹 " + opp.title() + " at " + opp.company() + " (deadline " + opp.deadline() + ")\n";
+        };
+    }
+
+    // Cuts text at a word boundary and marks the cut
+    private static String excerpt(String text, int maxChars) {
+        String s = text.strip().replaceAll("\\s+", " ");
+        if (s.length() <= maxChars) return s;
+        int cut = s.lastIndexOf(' ', maxChars);
+        return s.substring(0, cut > maxChars / 2 ? cut : maxChars) + "…";
+    }
+}
@@ -0,0 +1,190 @@
+package bot.ai;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Per-user conversation memory for {@code !ask}.
+ * Each user has a pinned context block (profile and opportunities), a short summary of older
+ * turns, and the most recent turns verbatim. The pinned block is kept as long as the data it
+ * was built from hashes the same, so follow-ups reuse it byte for byte instead of rebuilding
+ * it around every question; the prompt prefix stays stable and the question is sent on its own.
+ * <p>
+ * Memory is bounded: recent turns are capped by a token budget (older turns are folded into the
+ * summary locally, without a GPT call), conversations idle for {@code ask.memory.idleMinutes}
+ * are dropped, and at most {@code ask.memory.maxUsers} conversations are kept, evicting the
+ * least recently used.
+ */
+public class ConversationMemory {
+
+    private static final int MAX_USERS = Integer.getInteger("ask.memory.maxUsers", 2_000);
+    private static final long IDLE_MILLIS = Long.getLong("ask.memory.idleMinutes", 30) * 60_000;
+    private static final int HISTORY_BUDGET_TOKENS = Integer.getInteger("ask.memory.historyTokens", 800);
+    private static final int SUMMARY_BUDGET_TOKENS = Integer.getInteger("ask.memory.summaryTokens", 200);
+
+    // Longest text kept for one stored message; replies are also posted in full to Discord
+    private static final int MAX_STORED_CHARS = 1_500;
+    private static final int SUMMARY_QUESTION_CHARS = 120;
+    private static final int SUMMARY_ANSWER_CHARS = 200;
+
+    private record Turn(String question, String answer) {
+        int tokens() {
+            return ContextPacker.estimateTokens(question) + ContextPacker.estimateTokens(answer) + 8;
+        }
+    }
+
+    private static class Conversation {
+        String contextHash;
+        String context;
+        final ArrayDeque<Turn> turns = new ArrayDeque<>();
+        int turnTokens;
+        String summary = "";
+        long lastActive = System.currentTimeMillis();
+    }
+
+    private final Map<String, Conversation> conversations = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Conversation> eldest) {
+            return size() > MAX_USERS;
+        }
+    };
+
+    /**
+     * Returns the pinned context block if it was built from data with the given hash.
+     *
+     * @param userId      the user's Discord ID
+     * @param contextHash fingerprint of the profile and opportunities the block is built from
+     * @return the pinned block, or null if there is none or the data has changed
+     */
+    public synchronized String pinnedContext(String userId, String contextHash) {
+        Conversation c = active(userId);
+        return c != null && contextHash.equals(c.contextHash) ? c.context : null;
+    }
+
+    /**
+     * Pins a new context block for the user, replacing the previous one.
+     */
+    public synchronized void pin(String userId, String contextHash, String context) {
+        Conversation c = conversations.computeIfAbsent(userId, u -> new Conversation());
+        c.contextHash = contextHash;
+        c.context = context;
+        c.lastActive = System.currentTimeMillis();
+    }
+
+    /**
+     * Builds the messages for a new question: the system prompt, the pinned context, the summary
+     * of older turns, the recent turns and finally the question.
+     *
+     * @param userId       the user's Discord ID
+     * @param systemPrompt the assistant's instructions
+     * @param question     the new question
+     * @return the messages to send
+     */
+    public synchronized List<Map<String, String>> buildMessages(String userId, String systemPrompt, String question) {
+        List<Map<String, String>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "system", "content", systemPrompt));
+
+        Conversation c = active(userId);
+        if (c != null) {
+            if (c.context != null && !c.context.isEmpty()) {
+                messages.add(Map.of("role", "user", "content", c.context));
+            }
+            if (!c.summary.isEmpty()) {
+                messages.add(Map.of("role", "system", "content", "Summary of the earlier conversation:\n" + c.summary));
+            }
+            for (Turn t : c.turns) {
+                messages.add(Map.of("role", "user", "content", t.question()));
+                messages.add(Map.of("role", "assistant", "content", t.answer()));
+            }
+        }
+        messages.add(Map.of("role", "user", "content", "💬 My question is: " + question));
+        return messages;
+    }
+
+    /**
+     * Remembers a finished turn, folding the oldest turns into the summary if the recent
+     * turns exceed their token budget.
+     */
+    public synchronized void recordTurn(String userId, String question, String answer) {
+        Conversation c = conversations.computeIfAbsent(userId, u -> new Conversation());
+        Turn turn = new Turn(clip(question, MAX_STORED_CHARS), clip(answer, MAX_STORED_CHARS));
+        c.turns.addLast(turn);
+        c.turnTokens += turn.tokens();
+        c.lastActive = System.currentTimeMillis();
+
+        while (c.turnTokens > HISTORY_BUDGET_TOKENS && c.turns.size() > 1) {
+            Turn old = c.turns.pollFirst();
+            c.turnTokens -= old.tokens();
+            c.summary = summarize(c.summary, old);
+        }
+    }
+
+    /**
+     * Returns true if the user has an active conversation with earlier turns.
+     */
+    public synchronized boolean hasHistory(String userId) {
+        Conversation c = active(userId);
+        return c != null && (!c.turns.isEmpty() || !c.summary.isEmpty());
+    }
+
+    /**
+     * Forgets everything about a user's conversation.
+     */
+    public synchronized void forget(String userId) {
+        conversations.remove(userId);
+    }
+
+    /**
+     * Number of conversations currently held.
+     */
+    public synchronized int size() {
+        return conversations.size();
+    }
+
+    /**
+     * Fingerprints the data a context block is built from.
+     *
+     * @param source the profile and opportunity data, in a stable order
+     * @return a SHA-256 hex string
+     */
+    public static String fingerprint(CharSequence source) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(source.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Returns the user's conversation unless it has gone idle; also drops other idle conversations
+    private Conversation active(String userId) {
+        long now = System.currentTimeMillis();
+        Iterator<Conversation> it = conversations.values().iterator();
+        while (it.hasNext()) {
+            // Access order: the eldest entries come first, so stop at the first active one
+            if (now - it.next().lastActive <= IDLE_MILLIS) break;
+            it.remove();
+        }
+
+        Conversation c = conversations.get(userId);
+        if (c != null) c.lastActive = now;
+        return c;
+    }
+
+    // Appends a one-line digest of a turn, dropping the oldest lines once over budget
+    private static String summarize(String summary, Turn turn) {
+        String line = "- Asked: " + clip(turn.question(), SUMMARY_QUESTION_CHARS)
+                + " → Answered: " + clip(turn.answer().replaceAll("\\s+", " "), SUMMARY_ANSWER_CHARS) + "\n";
+        String result = summary + line;
+        while (ContextPacker.estimateTokens(result) > SUMMARY_BUDGET_TOKENS && result.indexOf('\n') < result.length() - 1) {
+            result = result.substring(result.indexOf('\n') + 1);
+        }
+        return result;
+    }
+
+    private static String clip(String text, int maxChars) {
+        return text.length() <= maxChars ? text : text.substring(0, maxChars) + "…";
+    }
+}
@@ -0,0 +1,322 @@
+package bot.ai;
+
+import okhttp3.Headers;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Schedules all OpenAI calls made through one {@link GPTClient}.
+ * <ul>
+ *   <li>At most {@code openai.scheduler.maxConcurrent} calls (default 4) are in flight.</li>
+ *   <li>Waiting calls are queued per user and served round-robin, so one user with many jobs
+ *       cannot starve the others. {@link Priority#INTERACTIVE} work always goes before
+ *       {@link Priority#BACKGROUND} work.</li>
+ *   <li>OpenAI's {@code x-ratelimit-remaining-*} / {@code x-ratelimit-reset-*} headers are
+ *       tracked, and a call is held back if its estimated tokens would exceed what is left
+ *       until the reset. A 429 with {@code retry-after} pauses dispatching for that long.</li>
+ * </ul>
+ * Queue depth, wait times and throttling are available from {@link #stats()}.
+ */
+public class GptScheduler {
+
+    /**
+     * Priority classes, served in declaration order.
+     */
+    public enum Priority {
+        INTERACTIVE, BACKGROUND
+    }
+
+    private static final int MAX_CONCURRENT = Integer.getInteger("openai.scheduler.maxConcurrent", 4);
+    // Expected completion size added to the prompt estimate when reserving tokens
+    private static final int COMPLETION_TOKENS = Integer.getInteger("openai.scheduler.completionTokens", 500);
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|s|m|h)");
+
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "gpt-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static class Job {
+        final String userId;
+        final Priority priority;
+        final int tokens;
+        final Supplier<CompletableFuture<String>> call;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        final long enqueuedAt = System.nanoTime();
+
+        Job(String userId, Priority priority, int tokens, Supplier<CompletableFuture<String>> call) {
+            this.userId = userId;
+            this.priority = priority;
+            this.tokens = tokens;
+            this.call = call;
+        }
+    }
+
+    // Round-robin queues for one priority: users in turn order, each with their own jobs
+    private static class FairQueue {
+        final ArrayDeque<String> turnOrder = new ArrayDeque<>();
+        final Map<String, ArrayDeque<Job>> byUser = new HashMap<>();
+        int size;
+
+        void add(Job job) {
+            ArrayDeque<Job> jobs = byUser.computeIfAbsent(job.userId, u -> {
+                turnOrder.addLast(u);
+                return new ArrayDeque<>();
+            });
+            jobs.addLast(job);
+            size++;
+        }
+
+        Job peek() {
+            String user = turnOrder.peekFirst();
+            return user == null ? null : byUser.get(user).peekFirst();
+        }
+
+        Job poll() {
+            String user = turnOrder.pollFirst();
+            if (user == null) return null;
+            ArrayDeque<Job> jobs = byUser.get(user);
+            Job job = jobs.pollFirst();
+            size--;
+            if (jobs.isEmpty()) byUser.remove(user);
+            else turnOrder.addLast(user); // Back of the line until the others had their turn
+            return job;
+        }
+    }
+
+    private final Map<Priority, FairQueue> queues = new EnumMap<>(Priority.class);
+    private int inFlight = 0;
+
+    // Rate-limit state from the latest response headers
+    private long remainingTokens = Long.MAX_VALUE;
+    private long remainingRequests = Long.MAX_VALUE;
+    private long tokensResetAt = 0;    // System.nanoTime() when the token budget refills
+    private long requestsResetAt = 0;
+    private long pausedUntil = 0;      // From retry-after
+    private boolean wakeUpScheduled = false;
+
+    // Metrics
+    private final Map<Priority, AtomicLong> dispatched = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicLong> totalWaitMillis = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicLong> maxWaitMillis = new EnumMap<>(Priority.class);
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    public GptScheduler(GPTClient gpt) {
+        for (Priority p : Priority.values()) {
+            queues.put(p, new FairQueue());
+            dispatched.put(p, new AtomicLong());
+            totalWaitMillis.put(p, new AtomicLong());
+            maxWaitMillis.put(p, new AtomicLong());
+        }
+        gpt.setResponseListener(this::onResponse);
+    }
+
+    /**
+     * Queues a call. It starts once a slot is free, the user's turn has come and the
+     * rate-limit budget allows it.
+     *
+     * @param userId   whose call this is, for fair queuing
+     * @param priority the priority class
+     * @param messages the prompt, used to estimate the tokens to reserve
+     * @param call     starts the actual OpenAI request
+     * @return a future with the reply; cancelling it drops the call from the queue or cancels it
+     */
+    public CompletableFuture<String> submit(String userId, Priority priority, List<Map<String, String>> messages,
+                                            Supplier<CompletableFuture<String>> call) {
+        Job job = new Job(userId, priority, estimateTokens(messages), call);
+        synchronized (this) {
+            queues.get(priority).add(job);
+        }
+        pump();
+        return job.result;
+    }
+
+    /**
+     * Estimates the tokens a call will use: the prompt plus an expected completion.
+     */
+    public static int estimateTokens(List<Map<String, String>> messages) {
+        int tokens = COMPLETION_TOKENS;
+        for (Map<String, String> m : messages) tokens += ContextPacker.estimateTokens(m.get("content")) + 4;
+        return tokens;
+    }
+
+    /**
+     * Returns queue depth, in-flight calls, wait times and throttling counters for logging.
+     */
+    public synchronized String stats() {
+        StringBuilder sb = new StringBuilder("inFlight=").append(inFlight);
+        for (Priority p : Priority.values()) {
+            long n = dispatched.get(p).get();
+            sb.append(", ").append(p.name().toLowerCase())
+                    .append("[queued=").append(queues.get(p).size)
+                    .append(", dispatched=").append(n)
+                    .append(", avgWait=").append(n == 0 ? 0 : totalWaitMillis.get(p).get() / n).append("ms")
+                    .append(", maxWait=").append(maxWaitMillis.get(p).get()).append("ms]");
+        }
+        sb.append(", throttled=").append(throttled).append(", rateLimited=").append(rateLimited);
+        if (remainingTokens != Long.MAX_VALUE) sb.append(", remainingTokens=").append(remainingTokens);
+        return sb.toString();
+    }
+
+    /**
+     * Queue depth for one priority class.
+     */
+    public synchronized int queueDepth(Priority priority) {
+        return queues.get(priority).size;
+    }
+
+    // Starts as many queued jobs as the limits allow
+    private void pump() {
+        List<Job> ready = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (now - tokensResetAt >= 0) remainingTokens = Long.MAX_VALUE;
+            if (now - requestsResetAt >= 0) remainingRequests = Long.MAX_VALUE;
+
+            while (inFlight < MAX_CONCURRENT) {
+                FairQueue queue = nextNonEmptyQueue();
+                if (queue == null) break;
+
+                Job job = queue.peek();
+                if (job.result.isDone()) { // Cancelled while waiting
+                    queue.poll();
+                    continue;
+                }
+
+                long waitUntil = blockedUntil(job, now);
+                if (waitUntil != 0) {
+                    throttled.incrementAndGet();
+                    scheduleWakeUp(waitUntil - now);
+                    break;
+                }
+
+                queue.poll();
+                inFlight++;
+                if (remainingTokens != Long.MAX_VALUE) remainingTokens -= job.tokens;
+                if (remainingRequests != Long.MAX_VALUE) remainingRequests--;
+                ready.add(job);
+            }
+        }
+        ready.forEach(this::start);
+    }
+
+    private FairQueue nextNonEmptyQueue() {
+        for (Priority p : Priority.values()) {
+            if (queues.get(p).size > 0) return queues.get(p);
+        }
+        return null;
+    }
+
+    // Returns 0 if the job may start now, otherwise the nanoTime at which to try again
+    private long blockedUntil(Job job, long now) {
+        if (pausedUntil - now > 0) return pausedUntil;
+        if (remainingRequests <= 0) return requestsResetAt;
+        if (job.tokens > remainingTokens) return tokensResetAt;
+        return 0;
+    }
+
+    private void scheduleWakeUp(long delayNanos) {
+        if (wakeUpScheduled) return;
+        wakeUpScheduled = true;
+        timer.schedule(() -> {
+            synchronized (this) {
+                wakeUpScheduled = false;
+            }
+            pump();
+        }, Math.max(1, delayNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private void start(Job job) {
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - job.enqueuedAt);
+        dispatched.get(job.priority).incrementAndGet();
+        totalWaitMillis.get(job.priority).addAndGet(waited);
+        maxWaitMillis.get(job.priority).accumulateAndGet(waited, Math::max);
+        if (waited > 1000) {
+            System.out.println("🚦 GPT call for " + job.userId + " waited " + waited + " ms (" + stats() + ")");
+        }
+
+        CompletableFuture<String> running;
+        try {
+            running = job.call.get();
+        } catch (RuntimeException e) {
+            running = CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<String> call = running;
+        job.result.whenComplete((r, e) -> {
+            if (job.result.isCancelled()) call.cancel(true);
+        });
+        call.whenComplete((reply, error) -> {
+            synchronized (this) {
+                inFlight--;
+            }
+            if (error != null) job.result.completeExceptionally(error);
+            else job.result.complete(reply);
+            pump();
+        });
+    }
+
+    // Updates the rate-limit budget from OpenAI's response headers
+    private void onResponse(int code, Headers headers) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            Long tokens = parseLong(headers.get("x-ratelimit-remaining-tokens"));
+            Long tokensReset = parseDuration(headers.get("x-ratelimit-reset-tokens"));
+            if (tokens != null && tokensReset != null) {
+                remainingTokens = tokens;
+                tokensResetAt = now + tokensReset;
+            }
+
+            Long requests = parseLong(headers.get("x-ratelimit-remaining-requests"));
+            Long requestsReset = parseDuration(headers.get("x-ratelimit-reset-requests"));
+            if (requests != null && requestsReset != null) {
+                remainingRequests = requests;
+                requestsResetAt = now + requestsReset;
+            }
+
+            if (code == 429) {
+                rateLimited.incrementAndGet();
+                Long retryAfter = parseLong(headers.get("retry-after"));
+                long pauseNanos = TimeUnit.SECONDS.toNanos(retryAfter != null ? retryAfter : 1);
+                pausedUntil = now + pauseNanos;
+                System.out.println("🚦 OpenAI rate limit hit, pausing for " + TimeUnit.NANOSECONDS.toMillis(pauseNanos) + " ms");
+            }
+        }
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) return null;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Parses OpenAI reset durations such as "20ms", "1s" or "6m0.5s" into nanoseconds
+    static Long parseDuration(String value) {
+        if (value == null || value.isBlank()) return null;
+        Matcher m = DURATION_PART.matcher(value.trim());
+        double nanos = 0;
+        boolean found = false;
+        while (m.find()) {
+            found = true;
+            double n = Double.parseDouble(m.group(1));
+            nanos += switch (m.group(2)) {
+                case "ms" -> n * 1e6;
+                case "s" -> n * 1e9;
+                case "m" -> n * 60e9;
+                default -> n * 3600e9;
+            };
+        }
+        return found ? (long) nanos : null;
+    }
+}
@@ -0,0 +1,87 @@
+package bot.api;
+
+/**
+ * Minimal circuit breaker.
+ * After {@code failureThreshold} consecutive failures the breaker opens and rejects calls
+ * for {@code openMillis}. It then lets a single trial call through (half-open): success
+ * closes it again, failure re-opens it. Every allowed call must end in exactly one of
+ * {@link #onSuccess()}, {@link #onFailure()} or {@link #onAbandoned()}, or a half-open
+ * breaker never lets another trial through.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    /**
+     * @param name             name used in log messages
+     * @param failureThreshold consecutive failures that open the breaker
+     * @param openMillis       how long the breaker stays open before allowing a trial call
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Returns true if a call may be made now. In the half-open state only one trial
+     * call is allowed at a time.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialInFlight) yield false;
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            System.out.println("✅ Circuit '" + name + "' closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                System.out.println("🚫 Circuit '" + name + "' opened after " + consecutiveFailures + " failures");
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            trialInFlight = false;
+        }
+    }
+
+    /**
+     * Records a call that ended without an upstream outcome, e.g. because the caller was
+     * interrupted. Counts as neither success nor failure, but frees the half-open trial slot.
+     */
+    public synchronized void onAbandoned() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,50 @@
+package bot.api;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Index of opportunity ids ordered by deadline.
+ * Finding everything that has expired is a walk over the head of a sorted map, so checking
+ * on every match costs almost nothing when nothing has expired. Not thread-safe; the owner
+ * is expected to synchronize.
+ */
+public class ExpiryIndex {
+
+    private final NavigableMap<LocalDate, Set<String>> byDeadline = new TreeMap<>();
+
+    /**
+     * Registers an id under its deadline. Ids without a deadline are not tracked.
+     */
+    public void add(String id, LocalDate deadline) {
+        if (deadline == null) return;
+        byDeadline.computeIfAbsent(deadline, d -> new HashSet<>()).add(id);
+    }
+
+    /**
+     * Removes an id previously registered under the given deadline.
+     */
+    public void remove(String id, LocalDate deadline) {
+        if (deadline == null) return;
+        Set<String> ids = byDeadline.get(deadline);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) byDeadline.remove(deadline);
+    }
+
+    /**
+     * Returns true if any tracked deadline is before {@code today}.
+     */
+    public boolean hasExpired(LocalDate today) {
+        return !byDeadline.isEmpty() && byDeadline.firstKey().isBefore(today);
+    }
+
+    /**
+     * Removes and returns every id whose deadline is before {@code today}.
+     */
+    public List<String> pollExpired(LocalDate today) {
+        List<String> expired = new ArrayList<>();
+        SortedMap<LocalDate, Set<String>> head = byDeadline.headMap(today);
+        for (Set<String> ids : head.values()) expired.addAll(ids);
+        head.clear();
+        return expired;
+    }
+}
@@ -0,0 +1,190 @@
+package bot.api;
+
+import bot.api.OpportunityClient.Opportunity;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache for opportunity search pages, keyed by (normalized term, page, limit).
+ * Entries are fresh for the TTL and answered straight from memory. After that they stay
+ * servable for the stale window while a single background refresh replaces them.
+ * The cache is size-bounded and evicts the least recently used entry first.
+ */
+public class OpportunityCache {
+
+    /**
+     * Loads a page from the upstream API on a miss or refresh.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        List<Opportunity> load() throws IOException;
+    }
+
+    private record Key(String term, int page, int limit) {
+    }
+
+    private static final class Entry {
+        final List<Opportunity> value;
+        final long loadedAt;
+        final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        Entry(List<Opportunity> value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final Map<Key, Entry> entries;
+
+    // Refreshes stale entries without blocking the caller
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "opportunity-cache-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Counters used to tune the TTL
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxEntries  maximum number of cached pages
+     * @param ttlMillis   how long an entry is served without any upstream call
+     * @param staleMillis how long after the TTL an entry may still be served while it refreshes
+     */
+    public OpportunityCache(int maxEntries, long ttlMillis, long staleMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.staleMillis = staleMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > OpportunityCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached page if it is fresh or stale-but-servable, otherwise loads it.
+     * A stale hit schedules at most one background refresh for that key.
+     *
+     * @param term   the search keyword
+     * @param page   the page number
+     * @param limit  the page size
+     * @param loader loads the page from upstream
+     * @return the opportunities for that page
+     * @throws IOException if the page has to be loaded and the upstream call fails
+     */
+    public List<Opportunity> get(String term, int page, int limit, Loader loader) throws IOException {
+        Key key = new Key(normalize(term), page, limit);
+        long now = System.currentTimeMillis();
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        if (entry != null) {
+            long age = now - entry.loadedAt;
+            if (age < ttlMillis) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            if (age < ttlMillis + staleMillis) {
+                staleHits.incrementAndGet();
+                if (entry.refreshing.compareAndSet(false, true)) {
+                    refresher.execute(() -> refresh(key, entry, loader));
+                }
+                return entry.value;
+            }
+        }
+
+        misses.incrementAndGet();
+        List<Opportunity> loaded = List.copyOf(loader.load());
+        put(key, loaded);
+        return loaded;
+    }
+
+    /**
+     * Returns the cached page regardless of its age, or null if nothing is cached.
+     */
+    public List<Opportunity> peek(String term, int page, int limit) {
+        synchronized (entries) {
+            Entry entry = entries.get(new Key(normalize(term), page, limit));
+            return entry != null ? entry.value : null;
+        }
+    }
+
+    private void refresh(Key key, Entry stale, Loader loader) {
+        try {
+            put(key, List.copyOf(loader.load()));
+            refreshes.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            // Nothing else would log it: the executor drops exceptions from execute()
+            System.out.println("⚠️ Background refresh failed for '" + key.term() + "' page " + key.page() + ": " + e);
+        } finally {
+            stale.refreshing.set(false); // Let the next stale hit try again if this entry is still cached
+        }
+    }
+
+    private void put(Key key, List<Opportunity> value) {
+        synchronized (entries) {
+            entries.put(key, new Entry(value, System.currentTimeMillis()));
+        }
+    }
+
+    private static String normalize(String term) {
+        return term.trim().toLowerCase();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OpportunityCache{size=" + size() + ", hits=" + hits + ", staleHits=" + staleHits
+                + ", misses=" + misses + ", evictions=" + evictions + ", refreshes=" + refreshes + "}";
+    }
+}
@@ -0,0 +1,266 @@
+package bot.api;
+
+import bot.api.OpportunityClient.Opportunity;
+import bot.search.Bm25Index;
+import bot.search.VectorMatcher;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local catalog of EXPERTS.AI opportunities, kept up to date by {@link OpportunityCatalogSync}.
+ * Every entry carries its content hash so a sweep only rewrites opportunities that are new or
+ * changed. Once the first sweep has completed, student matching is answered from here instead
+ * of calling the API on the interactive path, ranked with a BM25 index (keywords), fused with a
+ * vector matcher when there is CV text; both are rebuilt after each change.
+ */
+public class OpportunityCatalog {
+
+    /**
+     * Outcome of applying one sweep to the catalog.
+     */
+    public record SyncResult(int added, int changed, int unchanged, int removed) {
+    }
+
+    private record Entry(Opportunity opportunity, String hash) {
+    }
+
+    // Number of opportunities sent to a student per match, unless asked otherwise
+    public static final int DEFAULT_TOP_K = Integer.getInteger("opportunity.match.topK", 10);
+
+    // CV matching blends the CV and keyword rankings by reciprocal rank fusion
+    private static final int FUSION_RANK_OFFSET = 60;
+    private static final int FUSION_DEPTH_FACTOR = 3;
+    private static final double KEYWORD_WEIGHT =
+            Double.parseDouble(System.getProperty("opportunity.match.keywordWeight", "1.0"));
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ExpiryIndex expiry = new ExpiryIndex(); // Guarded by this
+    private volatile Bm25Index index = Bm25Index.build(List.of());
+    private volatile VectorMatcher vectors = VectorMatcher.build(List.of());
+    private volatile boolean ready = false;
+
+    /**
+     * Applies the opportunities found by a sweep. New and changed entries (by content hash)
+     * are written; unchanged ones are left alone. When the sweep was complete, entries that
+     * no longer appear upstream are removed. Expired opportunities are never added, an entry
+     * whose fresh copy has expired (e.g. its deadline was moved earlier) is removed, and any
+     * entry whose deadline has passed is dropped.
+     *
+     * @param found    opportunities found by the sweep, keyed by id
+     * @param complete true if every page of the sweep was fetched successfully
+     * @return counts of what was added, changed, left unchanged and removed
+     */
+    public synchronized SyncResult apply(Map<String, Opportunity> found, boolean complete) {
+        int added = 0, changed = 0, unchanged = 0, removed = 0;
+        LocalDate today = LocalDate.now();
+
+        for (Opportunity opp : found.values()) {
+            Entry current = entries.get(opp.id());
+            if (opp.isExpired(today)) {
+                // The stored copy may still carry the old, later deadline, so dropExpired won't see it
+                if (current != null) {
+                    entries.remove(opp.id());
+                    evict(opp.id(), current);
+                    removed++;
+                }
+                continue;
+            }
+            String hash = opp.contentHash();
+            if (current == null) {
+                entries.put(opp.id(), new Entry(opp, hash));
+                expiry.add(opp.id(), opp.deadlineDate());
+                added++;
+            } else if (!current.hash().equals(hash)) {
+                entries.put(opp.id(), new Entry(opp, hash));
+                expiry.remove(opp.id(), current.opportunity().deadlineDate());
+                expiry.add(opp.id(), opp.deadlineDate());
+                OpportunityEmbedCache.invalidate(opp.id());
+                changed++;
+            } else {
+                unchanged++;
+            }
+        }
+
+        // Only trust removals when we actually saw the whole feed
+        if (complete) {
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> e = it.next();
+                if (!found.containsKey(e.getKey())) {
+                    it.remove();
+                    evict(e.getKey(), e.getValue());
+                    removed++;
+                }
+            }
+        }
+
+        removed += dropExpired(today);
+
+        // Swap in a fresh index only when something actually changed
+        if (added + changed + removed > 0) {
+            rebuildIndex();
+        }
+
+        if (complete) ready = true; // A partial first sweep is not enough to stop live searches
+        return new SyncResult(added, changed, unchanged, removed);
+    }
+
+    /**
+     * Removes every entry whose deadline has passed and rebuilds the index if any were removed.
+     * Cheap to call often: when nothing has expired it is a single comparison.
+     *
+     * @return the number of entries removed
+     */
+    public synchronized int evictExpired() {
+        LocalDate today = LocalDate.now();
+        if (!expiry.hasExpired(today)) return 0;
+        int removed = dropExpired(today);
+        if (removed > 0) {
+            rebuildIndex();
+            System.out.println("⌛ Removed " + removed + " expired opportunities from the catalog");
+        }
+        return removed;
+    }
+
+    // Clears everything kept alongside an entry that was just taken out of entries
+    private void evict(String id, Entry entry) {
+        expiry.remove(id, entry.opportunity().deadlineDate());
+        OpportunityStore.evict(id);
+        OpportunityEmbedCache.invalidate(id);
+    }
+
+    private int dropExpired(LocalDate today) {
+        int removed = 0;
+        for (String id : expiry.pollExpired(today)) {
+            if (entries.remove(id) != null) removed++;
+            OpportunityStore.evict(id);
+            OpportunityEmbedCache.invalidate(id);
+        }
+        return removed;
+    }
+
+    private void rebuildIndex() {
+        List<Opportunity> all = entries.values().stream().map(Entry::opportunity).toList();
+        index = Bm25Index.build(all);
+        vectors = VectorMatcher.build(all);
+    }
+
+    /**
+     * Returns the best {@link #DEFAULT_TOP_K} opportunities for a keyword string.
+     *
+     * @see #match(String, int)
+     */
+    public List<Opportunity> match(String keywords) {
+        return match(keywords, DEFAULT_TOP_K);
+    }
+
+    /**
+     * Ranks opportunities against a student's skills and interests and returns the top k.
+     * Answers from the catalog index once it has been synced; before that it ranks the
+     * results of a live keyword search instead.
+     *
+     * @param keywords the student's skills and interests
+     * @param k        maximum number of opportunities to return
+     * @return the best matching opportunities, most relevant first
+     */
+    public List<Opportunity> match(String keywords, int k) {
+        if (ready) {
+            evictExpired();
+            List<Opportunity> ranked = index.topK(expand(keywords), k);
+            System.out.println("📚 Catalog match: top " + ranked.size() + " of " + index.size() + " opportunities");
+            return ranked;
+        }
+
+        System.out.println("⏳ Catalog not synced yet, searching EXPERTS.AI directly");
+        Set<Opportunity> live = OpportunityClient.searchMultipleKeywords(keywords);
+        List<Opportunity> ranked = new ArrayList<>(Bm25Index.build(live).topK(expand(keywords), k));
+
+        // Upstream may match on fields we don't index; keep those after the ranked ones
+        for (Opportunity opp : live) {
+            if (ranked.size() >= k) break;
+            if (!ranked.contains(opp)) ranked.add(opp);
+        }
+        return ranked;
+    }
+
+    /**
+     * Returns the best {@link #DEFAULT_TOP_K} opportunities for a student, using the CV if there is one.
+     *
+     * @see #match(String, String, int)
+     */
+    public List<Opportunity> match(String keywords, String cvText) {
+        return match(keywords, cvText, DEFAULT_TOP_K);
+    }
+
+    /**
+     * Ranks opportunities against a student's whole CV (plus skills and interests), entirely
+     * in-process. The cosine-similarity ranking of the CV and the BM25 ranking of the keywords
+     * are fused: each opportunity scores {@code 1 / (60 + rank)} in each list, the keyword list
+     * weighted by {@code opportunity.match.keywordWeight} (default 1), so a posting that names the
+     * student's skills moves up even if the rest of the CV is about something else. Falls back to
+     * {@link #match(String, int)} when there is no CV text or the catalog hasn't been synced yet.
+     *
+     * @param keywords the student's skills and interests
+     * @param cvText   the stored CV text, may be null
+     * @param k        maximum number of opportunities to return
+     * @return the best matching opportunities, most relevant first
+     */
+    public List<Opportunity> match(String keywords, String cvText, int k) {
+        if (!ready || cvText == null || cvText.isBlank()) return match(keywords, k);
+
+        evictExpired();
+        long start = System.nanoTime();
+        String expanded = expand(keywords);
+        int depth = k * FUSION_DEPTH_FACTOR; // Look past the top k, so each list can lift the other's runners-up
+        Map<Opportunity, Double> fused = new HashMap<>();
+        addRanks(fused, vectors.topK(cvText + "\n" + expanded, depth), 1.0);
+        addRanks(fused, index.topK(expanded, depth), KEYWORD_WEIGHT);
+
+        List<Opportunity> ranked = fused.entrySet().stream()
+                .sorted(Map.Entry.<Opportunity, Double>comparingByValue().reversed())
+                .limit(k)
+                .map(Map.Entry::getKey)
+                .toList();
+        long micros = (System.nanoTime() - start) / 1_000;
+        System.out.println("🧬 CV match: top " + ranked.size() + " of " + vectors.size()
+                + " opportunities in " + micros + " µs");
+        return ranked;
+    }
+
+    private static void addRanks(Map<Opportunity, Double> fused, List<Opportunity> ranked, double weight) {
+        for (int i = 0; i < ranked.size(); i++) {
+            fused.merge(ranked.get(i), weight / (FUSION_RANK_OFFSET + i + 1), Double::sum);
+        }
+    }
+
+    // Menu ids ("cpp", "ml") become the words postings actually use ("c++", "machine learning")
+    private static String expand(String keywords) {
+        return OpportunityClient.getPlanner().expand(keywords);
+    }
+
+    /**
+     * Returns the catalog entry for an id, or null if unknown.
+     */
+    public Opportunity get(String id) {
+        Entry entry = entries.get(id);
+        return entry != null ? entry.opportunity() : null;
+    }
+
+    /**
+     * Returns the content hash stored for an id, or null if unknown.
+     */
+    public String hashOf(String id) {
+        Entry entry = entries.get(id);
+        return entry != null ? entry.hash() : null;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
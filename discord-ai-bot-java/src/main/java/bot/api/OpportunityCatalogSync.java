@@ -0,0 +1,108 @@
+package bot.api;
+
+import bot.api.OpportunityClient.Opportunity;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically crawls the EXPERTS.AI opportunity feed into an {@link OpportunityCatalog}.
+ * Each sweep pages through a fixed set of seed terms, so the upstream request volume is one
+ * sweep per interval regardless of how many students are matching.
+ */
+public class OpportunityCatalogSync {
+
+    // Seed terms crawled on every sweep: the empty query plus the skills and positions offered in the menus
+    private static final List<String> DEFAULT_TERMS = List.of(
+            "", "java", "python", "javascript", "react", "spring", "node", "cpp", "csharp", "aspnet",
+            "sql", "git", "docker", "linux", "data", "machine learning", "security",
+            "backend", "frontend", "fullstack", "mobile", "qa", "devops");
+
+    private static final int PAGE_LIMIT = Integer.getInteger("opportunity.sync.pageLimit", 50);
+    private static final int MAX_PAGES_PER_TERM = Integer.getInteger("opportunity.sync.maxPages", 20);
+
+    private final OpportunityCatalog catalog;
+    private final List<String> terms;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "opportunity-catalog-sync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Creates a synchronizer for the given catalog. The seed terms can be overridden with the
+     * comma-separated {@code opportunity.sync.terms} system property.
+     *
+     * @param catalog the catalog to keep up to date
+     */
+    public OpportunityCatalogSync(OpportunityCatalog catalog) {
+        this.catalog = catalog;
+        String configured = System.getProperty("opportunity.sync.terms");
+        this.terms = configured != null ? List.of(configured.split(",", -1)) : DEFAULT_TERMS;
+    }
+
+    /**
+     * Starts sweeping immediately and then again {@code intervalMinutes} after each sweep ends.
+     *
+     * @param intervalMinutes minutes between two sweeps
+     */
+    public void start(long intervalMinutes) {
+        scheduler.scheduleWithFixedDelay(this::syncSafely, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops the background sweeps.
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void syncSafely() {
+        try {
+            syncOnce();
+        } catch (Exception e) {
+            // Never let an exception cancel the scheduled task
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs one full sweep over the seed terms and applies it to the catalog.
+     *
+     * @return what changed in the catalog
+     */
+    public OpportunityCatalog.SyncResult syncOnce() {
+        long start = System.currentTimeMillis();
+        Map<String, Opportunity> found = new HashMap<>();
+        boolean complete = true;
+
+        for (String term : terms) {
+            for (int page = 1; page <= MAX_PAGES_PER_TERM; page++) {
+                try {
+                    List<Opportunity> partial = OpportunityClient.fetchUncached(term.trim(), page, PAGE_LIMIT);
+                    for (Opportunity opp : partial) found.put(opp.id(), opp);
+                    if (partial.size() < PAGE_LIMIT) break;
+                    if (page == MAX_PAGES_PER_TERM) {
+                        // Still full at the page cap: there may be more, so nothing can be removed
+                        System.out.println("⚠️ Catalog sync hit the page cap for '" + term + "'");
+                        complete = false;
+                    }
+                } catch (IOException e) {
+                    System.out.println("❌ Catalog sync failed for '" + term + "' page " + page + ": " + e.getMessage());
+                    complete = false;
+                    break;
+                }
+            }
+        }
+
+        OpportunityCatalog.SyncResult result = catalog.apply(found, complete);
+        System.out.println("🔄 Catalog sync in " + (System.currentTimeMillis() - start) + " ms: "
+                + result.added() + " added, " + result.changed() + " changed, "
+                + result.unchanged() + " unchanged, " + result.removed() + " removed"
+                + (complete ? "" : " (incomplete sweep)"));
+        return result;
+    }
+}
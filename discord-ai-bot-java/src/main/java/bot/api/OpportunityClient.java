@@ -1,13 +1,20 @@
 package bot.api;
 
+import bot.http.HttpTransport;
+import bot.search.QueryPlanner;
 import com.google.gson.*;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import okhttp3.*;
 
 import java.io.IOException;
-import java.text.SimpleDateFormat;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * This class handles communication with the EXPERTS.AI opportunity API.
@@ -17,53 +24,215 @@ public class OpportunityClient {
 
     // API endpoint for fetching opportunities
     private static final String API_URL = "https://experts.ai/ai.unico.platform.rest/api/common/edumatch/318923/opportunity";
-    private static final OkHttpClient client = new OkHttpClient();
+    // Shared transport: pooled connections, per-host limits, timeouts and call timing
+    private static final OkHttpClient client = HttpTransport.client(HttpTransport.EXPERTS_AI);
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+    // Defaults for the concurrent keyword search
+    public static final int DEFAULT_MAX_CONCURRENCY = 4;
+    public static final long DEFAULT_SEARCH_BUDGET_MS = 8000;
+
+    // Results per page requested from the API
+    private static final int PAGE_LIMIT = 5;
+
+    // Shared cache for search pages; TTL and stale window can be tuned with system properties
+    private static final OpportunityCache cache = new OpportunityCache(
+            Integer.getInteger("opportunity.cache.maxEntries", 500),
+            Long.getLong("opportunity.cache.ttlMs", TimeUnit.MINUTES.toMillis(10)),
+            Long.getLong("opportunity.cache.staleMs", TimeUnit.MINUTES.toMillis(30)));
+
+    // Shares one HTTP call between concurrent identical (term, page) requests
+    private static final SingleFlight<String, List<Opportunity>> inFlight = new SingleFlight<>();
+
+    // Circuit breaker, retries and hedging around every HTTP call
+    private static final ResilientCaller resilience =
+            new ResilientCaller("experts.ai", ResilientCaller.Config.fromSystemProperties("opportunity.resilience"));
+
+    // Turns a keyword string into the smallest set of upstream queries
+    private static final QueryPlanner planner = QueryPlanner.load(PAGE_LIMIT);
 
     /**
-     * Searches for opportunities based on multiple keywords.
-     * Each keyword is sent to the API individually (up to 3 pages per keyword).
+     * Searches for opportunities based on multiple keywords using the default
+     * concurrency cap and time budget.
      *
      * @param keywords A space- or comma-separated string of keywords.
      * @return A set of opportunities collected from all keyword searches.
+     * @see #searchMultipleKeywords(String, int, long)
      */
     public static Set<Opportunity> searchMultipleKeywords(String keywords) {
-        Set<Opportunity> allResults = new HashSet<>();
-        String[] terms = keywords.toLowerCase().replace(",", " ").split("\\s+");
+        return searchMultipleKeywords(keywords, DEFAULT_MAX_CONCURRENCY, DEFAULT_SEARCH_BUDGET_MS);
+    }
 
-        for (String term : terms) {
-            if (term.isBlank()) continue;
-            for (int page = 1; page <= 3; page++) {
-                System.out.println("🔎 Searching '" + term + "' page " + page);
+    /**
+     * Searches for opportunities based on multiple keywords, running the terms in parallel.
+     * The keywords are first planned by {@link QueryPlanner}, which merges synonyms and drops
+     * noise and redundant terms. Each planned term is paged sequentially up to its planned
+     * depth, stopping early when a page returns fewer than 5 results. At most
+     * {@code maxConcurrency} terms are searched at once.
+     * If the wall-clock budget runs out, the results gathered so far are returned and the
+     * remaining requests are cancelled.
+     *
+     * @param keywords       A space- or comma-separated string of keywords.
+     * @param maxConcurrency Maximum number of terms searched at the same time.
+     * @param budgetMillis   Wall-clock budget for the whole call, in milliseconds.
+     * @return A set of opportunities collected from all keyword searches.
+     */
+    public static Set<Opportunity> searchMultipleKeywords(String keywords, int maxConcurrency, long budgetMillis) {
+        Set<Opportunity> allResults = ConcurrentHashMap.newKeySet();
+        QueryPlanner.QueryPlan plan = planner.plan(keywords);
+        System.out.println("🧭 Query plan: " + plan.describe());
+        List<QueryPlanner.PlannedTerm> terms = plan.terms();
+        if (terms.isEmpty()) return new HashSet<>();
+
+        // One worker per term, capped so a large profile can't flood the API
+        int workers = Math.max(1, Math.min(maxConcurrency, terms.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "opportunity-search");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            for (QueryPlanner.PlannedTerm term : terms) {
+                tasks.add(CompletableFuture.runAsync(() -> searchTerm(term.term(), term.pages(), allResults), executor));
+            }
 
-                try {
-                    List<Opportunity> partial = search(term, page);
-                    allResults.addAll(partial);
-                    if (partial.size() < 5) break; // Stop if less than 5 results
-                } catch (IOException e) {
-                    System.out.println("❌ Error searching for keyword '" + term + "' on page " + page + ": " + e.getMessage());
-                }
+            try {
+                CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]))
+                        .get(budgetMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                System.out.println("⏱️ Search budget of " + budgetMillis + " ms exhausted, returning partial results");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.out.println("❌ Error during keyword search: " + e.getCause());
             }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Cached pages may still hold postings whose deadline passed since they were fetched
+        LocalDate today = LocalDate.now();
+        Set<Opportunity> snapshot = new HashSet<>();
+        for (Opportunity opp : allResults) {
+            if (!opp.isExpired(today)) snapshot.add(opp);
         }
-        System.out.println("✅ Total opportunities found: " + allResults.size());
-        return allResults;
+        System.out.println("✅ Total opportunities found: " + snapshot.size());
+        System.out.println("📊 " + cache);
+        System.out.println("🛡️ " + resilience);
+        return snapshot;
     }
 
     /**
-     * Performs a search query to the opportunity API for a specific keyword and page.
-     * Parses the result JSON into a list of Opportunity objects.
+     * Fetches up to {@code maxPages} pages for a single keyword, stopping when a page comes back
+     * short, and records the number of hits so later plans can pick the right depth.
+     *
+     * @param term     The keyword to search for.
+     * @param maxPages The number of pages planned for this keyword.
+     * @param results  Thread-safe set that collects the opportunities found.
+     */
+    private static void searchTerm(String term, int maxPages, Set<Opportunity> results) {
+        int hits = 0;
+        boolean complete = true;
+        for (int page = 1; page <= maxPages; page++) {
+            if (Thread.currentThread().isInterrupted()) return;
+            System.out.println("🔎 Searching '" + term + "' page " + page);
+
+            try {
+                List<Opportunity> partial = search(term, page);
+                results.addAll(partial);
+                hits += partial.size();
+                if (partial.size() < PAGE_LIMIT) break; // Stop if less than 5 results
+            } catch (IOException e) {
+                System.out.println("❌ Error searching for keyword '" + term + "' on page " + page + ": " + e.getMessage());
+                complete = false;
+            }
+        }
+        // Only learn from runs that weren't cut short by errors
+        if (complete) planner.recordHits(term, hits);
+    }
+
+    /**
+     * Returns the query planner, e.g. to expand keywords with its synonym table.
+     */
+    public static QueryPlanner getPlanner() {
+        return planner;
+    }
+
+    /**
+     * Returns the cache used for search pages, e.g. to read its hit/miss/eviction counters.
+     */
+    public static OpportunityCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Returns the opportunities for a keyword and page, answering from the cache when possible.
+     * While the circuit to EXPERTS.AI is open, any cached page is served regardless of age.
      *
      * @param query The keyword to search for.
      * @param page  The page number (pagination).
      * @return A list of parsed Opportunity objects.
-     * @throws IOException if the API call fails.
+     * @throws IOException if the page is not cached and the API call fails.
      */
     private static List<Opportunity> search(String query, int page) throws IOException {
+        try {
+            return cache.get(query, page, PAGE_LIMIT, () -> fetchPageCoalesced(query, page, PAGE_LIMIT));
+        } catch (ResilientCaller.CircuitOpenException e) {
+            // Upstream is failing: serve whatever we have, however old, instead of waiting
+            List<Opportunity> stale = cache.peek(query, page, PAGE_LIMIT);
+            if (stale != null) return stale;
+            throw e;
+        }
+    }
+
+    /**
+     * Fetches a page straight from the API, bypassing the result cache.
+     * Used by the catalog synchronizer, which needs current data rather than cached pages.
+     *
+     * @param query The keyword to search for (may be empty to list the whole feed).
+     * @param page  The page number (pagination).
+     * @param limit The number of results per page.
+     * @return An unmodifiable list of parsed Opportunity objects.
+     * @throws IOException if the API call fails.
+     */
+    public static List<Opportunity> fetchUncached(String query, int page, int limit) throws IOException {
+        return fetchPageCoalesced(query, page, limit);
+    }
+
+    /**
+     * Fetches a page, joining an identical request that is already in flight instead of
+     * issuing a second HTTP call. All waiters receive the same parsed list or the same error.
+     *
+     * @param query The keyword to search for.
+     * @param page  The page number (pagination).
+     * @param limit The number of results per page.
+     * @return An unmodifiable list of parsed Opportunity objects.
+     * @throws IOException if the shared API call fails.
+     */
+    private static List<Opportunity> fetchPageCoalesced(String query, int page, int limit) throws IOException {
+        String key = query.trim().toLowerCase() + "|" + page + "|" + limit;
+        return inFlight.execute(key, () -> List.copyOf(resilience.execute(attempt -> fetchPage(query, page, limit, attempt))));
+    }
+
+    /**
+     * Performs a search query to the opportunity API for a specific keyword and page.
+     * Streams the result JSON into a list of Opportunity objects.
+     *
+     * @param query   The keyword to search for.
+     * @param page    The page number (pagination).
+     * @param limit   The number of results per page.
+     * @param attempt Cancels the HTTP call if this attempt loses a hedge race or its caller gives up.
+     * @return A list of parsed Opportunity objects.
+     * @throws IOException if the API call fails.
+     */
+    private static List<Opportunity> fetchPage(String query, int page, int limit,
+                                               ResilientCaller.Attempt attempt) throws IOException {
         HttpUrl.Builder urlBuilder = HttpUrl.parse(API_URL).newBuilder();
         urlBuilder.addQueryParameter("query", query);
         urlBuilder.addQueryParameter("page", String.valueOf(page));
-        urlBuilder.addQueryParameter("limit", "5");
+        urlBuilder.addQueryParameter("limit", String.valueOf(limit));
         urlBuilder.addQueryParameter("includeApplications", "false");
 
         Request request = new Request.Builder()
@@ -72,119 +241,165 @@ public class OpportunityClient {
                 .addHeader("Accept", "application/json")
                 .build();
 
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) throw new IOException("API error: " + response.code());
+        Call call = client.newCall(request);
+        attempt.onCancel(call::cancel);
+        try (Response response = call.execute()) {
+            if (!response.isSuccessful()) throw ResilientCaller.statusError("API error", response.code());
+
+            // Decode straight from the response stream, without buffering the body
+            return OpportunityJsonDecoder.decode(response.body().charStream());
+        }
+    }
+
+    /**
+     * Immutable data class representing a single opportunity.
+     * Low-cardinality fields (company, type, deadline, wage, home office, contact) are interned
+     * through {@link OpportunityStore}, and the large description and benefits texts are kept as
+     * UTF-8 bytes and only decoded when read. Use {@link OpportunityStore#canonical(Opportunity)}
+     * to share one instance per id across searches and users.
+     */
+    public static final class Opportunity {
+        private final String id, title, company, type, deadline, url;
+        private final String wage, homeOffice, formReq, techReq, contactPerson;
+        private final byte[] description, benefits;
+        private final LocalDate deadlineDate; // Parsed deadline, null if unknown
+        private volatile String contentHash;
+
+        /**
+         * Full constructor (used when parsing API responses and reading from the database).
+         * Null values are stored as empty strings.
+         */
+        public Opportunity(String id, String title, String company, String type, String deadline,
+                           String description, String url,
+                           String wage, String homeOffice, String benefits,
+                           String formReq, String techReq, String contactPerson) {
+            this.id = nullToEmpty(id);
+            this.title = nullToEmpty(title);
+            this.company = OpportunityStore.intern(company);
+            this.type = OpportunityStore.intern(type);
+            this.deadline = OpportunityStore.intern(deadline);
+            this.description = nullToEmpty(description).getBytes(StandardCharsets.UTF_8);
+            this.url = nullToEmpty(url);
+            this.wage = OpportunityStore.intern(wage);
+            this.homeOffice = OpportunityStore.intern(homeOffice);
+            this.benefits = nullToEmpty(benefits).getBytes(StandardCharsets.UTF_8);
+            this.formReq = nullToEmpty(formReq);
+            this.techReq = nullToEmpty(techReq);
+            this.contactPerson = OpportunityStore.intern(contactPerson);
+            this.deadlineDate = parseDeadline(this.deadline);
+        }
 
-            JsonObject root = JsonParser.parseString(response.body().string()).getAsJsonObject();
-            if (!root.has("opportunityPreviewDtos") || root.get("opportunityPreviewDtos").isJsonNull()) return List.of();
+        public String id() {
+            return id;
+        }
 
-            JsonArray items = root.getAsJsonArray("opportunityPreviewDtos");
-            List<Opportunity> results = new ArrayList<>();
+        public String title() {
+            return title;
+        }
 
-            for (JsonElement el : items) {
-                JsonObject obj = el.getAsJsonObject();
+        public String company() {
+            return company;
+        }
 
-                String id = obj.get("opportunityId").getAsString();
-                String name = obj.get("opportunityName").getAsString();
-                String description = obj.get("opportunityDescription").getAsString();
+        public String type() {
+            return type;
+        }
 
-                String company = "Unknown";
-                if (obj.has("organizationBaseDtos")) {
-                    JsonArray orgs = obj.getAsJsonArray("organizationBaseDtos");
-                    if (orgs.size() > 0) {
-                        JsonObject org = orgs.get(0).getAsJsonObject();
-                        company = org.get("organizationName").getAsString();
-                    }
-                }
+        public String deadline() {
+            return deadline;
+        }
 
-                String jobType = "N/A";
-                if (obj.has("jobTypes") && obj.get("jobTypes").isJsonArray()) {
-                    JsonArray jobArray = obj.getAsJsonArray("jobTypes");
-                    if (jobArray.size() > 0) jobType = "Type " + jobArray.get(0).getAsInt();
-                }
+        public String url() {
+            return url;
+        }
 
-                String deadline = "N/A";
-                if (obj.has("opportunitySignupDate") && !obj.get("opportunitySignupDate").isJsonNull()) {
-                    long ts = obj.get("opportunitySignupDate").getAsLong();
-                    deadline = dateFormat.format(new Date(ts));
-                }
+        public String wage() {
+            return wage;
+        }
 
-                String extLink = obj.has("opportunityExtLink") && !obj.get("opportunityExtLink").isJsonNull()
-                        ? obj.get("opportunityExtLink").getAsString()
-                        : "";
-
-                String wage = obj.has("opportunityWage") && !obj.get("opportunityWage").isJsonNull()
-                        ? obj.get("opportunityWage").getAsString()
-                        : "";
-
-                String homeOffice = obj.has("opportunityHomeOffice") && !obj.get("opportunityHomeOffice").isJsonNull()
-                        ? obj.get("opportunityHomeOffice").getAsString()
-                        : "";
-
-                String benefits = obj.has("opportunityBenefit") && !obj.get("opportunityBenefit").isJsonNull()
-                        ? obj.get("opportunityBenefit").getAsString()
-                        : "";
-
-                String formReq = obj.has("opportunityFormReq") && !obj.get("opportunityFormReq").isJsonNull()
-                        ? obj.get("opportunityFormReq").getAsString()
-                        : "";
-
-                String techReq = obj.has("opportunityTechReq") && !obj.get("opportunityTechReq").isJsonNull()
-                        ? obj.get("opportunityTechReq").getAsString()
-                        : "";
-
-                String contact = "";
-                if (obj.has("expertPreviews")) {
-                    JsonArray contacts = obj.getAsJsonArray("expertPreviews");
-                    if (contacts.size() > 0) {
-                        JsonObject c = contacts.get(0).getAsJsonObject();
-                        if (c.has("name") && !c.get("name").isJsonNull()) {
-                            contact = c.get("name").getAsString();
-                        }
-                    }
-                }
+        public String homeOffice() {
+            return homeOffice;
+        }
 
-                results.add(new Opportunity(id, name, company, jobType, deadline, description, extLink,
-                        wage, homeOffice, benefits, formReq, techReq, contact));
-            }
+        public String formReq() {
+            return formReq;
+        }
 
-            return results;
+        public String techReq() {
+            return techReq;
         }
-    }
 
-    /**
-     * Data class representing a single opportunity.
-     */
-    public static class Opportunity {
-        public String id, title, company, type, deadline, description, url;
-        public String wage, homeOffice, benefits, formReq, techReq, contactPerson;
+        public String contactPerson() {
+            return contactPerson;
+        }
 
         /**
-         * Empty constructor (used when populating manually from database).
+         * Returns the deadline as a date, or null if it is missing or not a valid date (e.g. "N/A").
          */
-        public Opportunity() {
+        public LocalDate deadlineDate() {
+            return deadlineDate;
         }
 
         /**
-         * Full constructor (used when parsing API response directly).
+         * Returns true if the deadline has passed. Opportunities without a deadline never expire.
+         *
+         * @param today the current date
          */
-        public Opportunity(String id, String title, String company, String type, String deadline,
-                           String description, String url,
-                           String wage, String homeOffice, String benefits,
-                           String formReq, String techReq, String contactPerson) {
-            this.id = id;
-            this.title = title;
-            this.company = company;
-            this.type = type;
-            this.deadline = deadline;
-            this.description = description;
-            this.url = url;
-            this.wage = wage;
-            this.homeOffice = homeOffice;
-            this.benefits = benefits;
-            this.formReq = formReq;
-            this.techReq = techReq;
-            this.contactPerson = contactPerson;
+        public boolean isExpired(LocalDate today) {
+            return deadlineDate != null && deadlineDate.isBefore(today);
+        }
+
+        /**
+         * Decodes the description; callers that need it repeatedly should keep the result.
+         */
+        public String description() {
+            return new String(description, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Decodes the benefits; callers that need it repeatedly should keep the result.
+         */
+        public String benefits() {
+            return new String(benefits, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Returns a SHA-256 hash over every field, computed once and then cached.
+         *
+         * @return the hash as a lowercase hex string
+         */
+        public String contentHash() {
+            String hash = contentHash;
+            if (hash == null) {
+                try {
+                    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                    for (String field : new String[]{id, title, company, type, deadline, url,
+                            wage, homeOffice, formReq, techReq, contactPerson}) {
+                        digest.update(field.getBytes(StandardCharsets.UTF_8));
+                        digest.update((byte) 0); // Field separator
+                    }
+                    digest.update(description);
+                    digest.update((byte) 0);
+                    digest.update(benefits);
+                    hash = HexFormat.of().formatHex(digest.digest());
+                    contentHash = hash;
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException("SHA-256 not available", e);
+                }
+            }
+            return hash;
+        }
+
+        /**
+         * Returns true if both opportunities have identical field values.
+         */
+        public boolean sameContent(Opportunity other) {
+            return id.equals(other.id) && title.equals(other.title) && company.equals(other.company)
+                    && type.equals(other.type) && deadline.equals(other.deadline) && url.equals(other.url)
+                    && wage.equals(other.wage) && homeOffice.equals(other.homeOffice)
+                    && formReq.equals(other.formReq) && techReq.equals(other.techReq)
+                    && contactPerson.equals(other.contactPerson)
+                    && Arrays.equals(description, other.description) && Arrays.equals(benefits, other.benefits);
         }
 
         /**
@@ -193,6 +408,9 @@ public class OpportunityClient {
          * @return MessageEmbed for displaying in Discord
          */
         public MessageEmbed toEmbed() {
+            String description = description();
+            String benefits = benefits();
+
             EmbedBuilder embed = new EmbedBuilder();
             embed.setTitle("📌 " + title, url);
             embed.setDescription(description.length() > 500 ? description.substring(0, 500) + "..." : description);
@@ -224,5 +442,17 @@ public class OpportunityClient {
         public int hashCode() {
             return Objects.hash(id);
         }
+
+        private static String nullToEmpty(String value) {
+            return value != null ? value : "";
+        }
+
+        private static LocalDate parseDeadline(String deadline) {
+            try {
+                return deadline.isBlank() ? null : LocalDate.parse(deadline);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
     }
 }
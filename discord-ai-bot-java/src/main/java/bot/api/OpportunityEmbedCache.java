@@ -0,0 +1,77 @@
+package bot.api;
+
+import bot.api.OpportunityClient.Opportunity;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.api.interactions.components.buttons.Button;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of pre-rendered Discord embeds for opportunities.
+ * An opportunity looks the same for every user, so its embed and Apply button row are built
+ * once and reused on every send. Entries are keyed by opportunity id and checked against the
+ * content hash, so a changed opportunity is re-rendered; the catalog also invalidates entries
+ * explicitly when it rewrites or removes them.
+ */
+public class OpportunityEmbedCache {
+
+    /**
+     * A ready-to-send embed and, if the opportunity has a URL, its Apply button row.
+     */
+    public record Rendered(MessageEmbed embed, ActionRow applyRow) {
+    }
+
+    private record Entry(String hash, Rendered rendered) {
+    }
+
+    private static final int MAX_ENTRIES = Integer.getInteger("opportunity.embedCache.maxEntries", 5_000);
+
+    private static final Map<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Returns the rendered embed for an opportunity, building it only if it isn't cached
+     * for the opportunity's current content.
+     *
+     * @param opp the opportunity to render
+     * @return the embed and optional Apply button row
+     */
+    public static Rendered render(Opportunity opp) {
+        String hash = opp.contentHash();
+        synchronized (entries) {
+            Entry entry = entries.get(opp.id());
+            if (entry != null && entry.hash().equals(hash)) return entry.rendered();
+        }
+
+        // Build outside the lock; at worst two threads render the same opportunity once each
+        ActionRow applyRow = opp.url().isBlank() ? null : ActionRow.of(Button.link(opp.url(), "📩 Apply"));
+        Rendered rendered = new Rendered(opp.toEmbed(), applyRow);
+        synchronized (entries) {
+            entries.put(opp.id(), new Entry(hash, rendered));
+        }
+        return rendered;
+    }
+
+    /**
+     * Drops the cached render for an opportunity that changed or was removed.
+     *
+     * @param id the opportunity id
+     */
+    public static void invalidate(String id) {
+        synchronized (entries) {
+            entries.remove(id);
+        }
+    }
+
+    public static int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
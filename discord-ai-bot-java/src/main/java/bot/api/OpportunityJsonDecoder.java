@@ -0,0 +1,169 @@
+package bot.api;
+
+import bot.api.OpportunityClient.Opportunity;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming decoder for EXPERTS.AI opportunity search responses.
+ * Reads {@code opportunityPreviewDtos} token by token straight into {@link Opportunity}
+ * instances, skipping every field the bot does not use, so no intermediate String or
+ * JSON tree of the whole body is ever built. Decoded opportunities are canonicalized
+ * through {@link OpportunityStore}.
+ */
+public class OpportunityJsonDecoder {
+
+    // Defaults for fields the API leaves out; rows read back from the database use them too
+    public static final String DEFAULT_COMPANY = "Unknown";
+    public static final String DEFAULT_JOB_TYPE = "N/A";
+    public static final String DEFAULT_DEADLINE = "N/A";
+
+    // Thread-safe formatter: pages for different terms are decoded concurrently
+    private static final DateTimeFormatter dateFormat = DateTimeFormatter.ISO_LOCAL_DATE.withZone(ZoneId.systemDefault());
+
+    /**
+     * Decodes a search response body.
+     *
+     * @param in the response body as a character stream
+     * @return the opportunities contained in the response (empty if none)
+     * @throws IOException if the body cannot be read or is not valid JSON
+     */
+    public static List<Opportunity> decode(Reader in) throws IOException {
+        List<Opportunity> results = new ArrayList<>();
+        JsonReader reader = new JsonReader(in);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("opportunityPreviewDtos") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    results.add(readOpportunity(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return results;
+    }
+
+    /**
+     * Reads a single opportunity object, applying the same defaults the API client always used.
+     */
+    private static Opportunity readOpportunity(JsonReader reader) throws IOException {
+        String id = "", name = "", description = "";
+        String company = DEFAULT_COMPANY, jobType = DEFAULT_JOB_TYPE, deadline = DEFAULT_DEADLINE;
+        String extLink = "", wage = "", homeOffice = "", benefits = "", formReq = "", techReq = "", contact = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "opportunityId" -> id = orDefault(nextString(reader), "");
+                case "opportunityName" -> name = orDefault(nextString(reader), "");
+                case "opportunityDescription" -> description = orDefault(nextString(reader), "");
+                case "opportunityExtLink" -> extLink = orDefault(nextString(reader), "");
+                case "opportunityWage" -> wage = orDefault(nextString(reader), "");
+                case "opportunityHomeOffice" -> homeOffice = orDefault(nextString(reader), "");
+                case "opportunityBenefit" -> benefits = orDefault(nextString(reader), "");
+                case "opportunityFormReq" -> formReq = orDefault(nextString(reader), "");
+                case "opportunityTechReq" -> techReq = orDefault(nextString(reader), "");
+                case "opportunitySignupDate" -> {
+                    if (reader.peek() == JsonToken.NUMBER) {
+                        deadline = dateFormat.format(Instant.ofEpochMilli(reader.nextLong()));
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                case "jobTypes" -> {
+                    String first = firstArrayValue(reader);
+                    if (first != null) jobType = "Type " + first;
+                }
+                case "organizationBaseDtos" -> {
+                    // Blank names fall back too: the database stores them as NULL
+                    String organization = firstObjectField(reader, "organizationName");
+                    if (organization != null && !organization.isBlank()) company = organization;
+                }
+                case "expertPreviews" -> contact = orDefault(firstObjectField(reader, "name"), "");
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return OpportunityStore.canonical(new Opportunity(id, name, company, jobType, deadline, description, extLink,
+                wage, homeOffice, benefits, formReq, techReq, contact));
+    }
+
+    /**
+     * Reads a scalar as a string, or returns null for JSON null and skips non-scalars.
+     */
+    private static String nextString(JsonReader reader) throws IOException {
+        return switch (reader.peek()) {
+            case STRING, NUMBER -> reader.nextString();
+            case BOOLEAN -> String.valueOf(reader.nextBoolean());
+            case NULL -> {
+                reader.nextNull();
+                yield null;
+            }
+            default -> {
+                reader.skipValue();
+                yield null;
+            }
+        };
+    }
+
+    /**
+     * Returns the first scalar of an array and skips the rest.
+     */
+    private static String firstArrayValue(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        String first = null;
+        reader.beginArray();
+        if (reader.hasNext()) first = nextString(reader);
+        while (reader.hasNext()) reader.skipValue();
+        reader.endArray();
+        return first;
+    }
+
+    /**
+     * Returns one field of the first object in an array and skips everything else.
+     */
+    private static String firstObjectField(JsonReader reader, String field) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        String value = null;
+        reader.beginArray();
+        if (reader.hasNext() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals(field)) {
+                    value = nextString(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        while (reader.hasNext()) reader.skipValue();
+        reader.endArray();
+        return value;
+    }
+
+    private static String orDefault(String value, String fallback) {
+        return value != null ? value : fallback;
+    }
+}
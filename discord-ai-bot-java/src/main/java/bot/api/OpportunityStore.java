@@ -0,0 +1,91 @@
+package bot.api;
+
+import bot.api.OpportunityClient.Opportunity;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Canonical, process-wide store of opportunities keyed by id.
+ * Every search result and database row is passed through {@link #canonical(Opportunity)},
+ * so all users and searches share one immutable instance per opportunity instead of each
+ * holding their own copy. Also interns the low-cardinality string fields that repeat
+ * heavily across opportunities (company, type, deadline, wage, home office, contact).
+ * <p>
+ * Both maps are bounded and evict the least recently used entry, because ids from live
+ * searches and database reads are never evicted explicitly. Evicting only costs sharing:
+ * the catalog and callers keep their own references to the instances they hold.
+ */
+public class OpportunityStore {
+
+    // Values longer than this are unlikely to repeat, so they are not interned
+    private static final int MAX_INTERNED_LENGTH = 128;
+    // Caps so ids and values that stop appearing don't stay in memory forever
+    private static final int MAX_OPPORTUNITIES = Integer.getInteger("opportunity.store.maxEntries", 20_000);
+    private static final int MAX_POOL_SIZE = Integer.getInteger("opportunity.store.maxPooledValues", 50_000);
+
+    // Access-ordered LRU maps; guarded by their own monitor
+    private static final Map<String, Opportunity> byId = lru(MAX_OPPORTUNITIES);
+    private static final Map<String, String> pool = lru(MAX_POOL_SIZE);
+
+    /**
+     * Returns the shared instance for this opportunity's id. If the stored instance has the
+     * same content it is reused; otherwise the given instance replaces it.
+     *
+     * @param opp a freshly built opportunity
+     * @return the canonical instance for its id
+     */
+    public static Opportunity canonical(Opportunity opp) {
+        synchronized (byId) {
+            Opportunity current = byId.get(opp.id());
+            if (current != null && current.sameContent(opp)) return current;
+            byId.put(opp.id(), opp);
+            return opp;
+        }
+    }
+
+    /**
+     * Drops an opportunity that no longer exists upstream.
+     *
+     * @param id the opportunity id
+     */
+    public static void evict(String id) {
+        synchronized (byId) {
+            byId.remove(id);
+        }
+    }
+
+    /**
+     * Returns the number of canonical opportunities held.
+     */
+    public static int size() {
+        synchronized (byId) {
+            return byId.size();
+        }
+    }
+
+    /**
+     * Returns a shared instance of a short, frequently repeated string value.
+     * Null becomes the empty string.
+     *
+     * @param value the value to intern
+     * @return the pooled value, or the value itself if it is not worth pooling
+     */
+    static String intern(String value) {
+        if (value == null) return "";
+        if (value.length() > MAX_INTERNED_LENGTH) return value;
+        synchronized (pool) {
+            String pooled = pool.putIfAbsent(value, value);
+            return pooled != null ? pooled : value;
+        }
+    }
+
+    private static <V> Map<String, V> lru(int maxEntries) {
+        return new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
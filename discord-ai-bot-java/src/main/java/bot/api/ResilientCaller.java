@@ -0,0 +1,354 @@
+package bot.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps upstream calls with a circuit breaker, bounded retries with jittered exponential
+ * backoff, and hedging: when a call is still running after the observed p95 latency, a
+ * second identical call is started and whichever succeeds first wins; the other is cancelled.
+ * Calls run on a bounded pool so an interrupted caller can cancel them. Failures, including
+ * timeouts, are retried; an interrupted caller and client errors ({@link ClientErrorException})
+ * are not, and neither counts against the circuit. All thresholds come from a {@link Config}, which can be read from
+ * system properties.
+ */
+public class ResilientCaller {
+
+    /**
+     * The call to protect.
+     */
+    @FunctionalInterface
+    public interface Call<V> {
+        /**
+         * @param attempt lets the call register how to abort itself, e.g. cancel its HTTP request,
+         *                when it loses a hedge race or the caller is interrupted
+         */
+        V execute(Attempt attempt) throws IOException;
+    }
+
+    /**
+     * One execution of a {@link Call}, which can be cancelled from another thread.
+     */
+    public static final class Attempt {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile Runnable onCancel;
+
+        /**
+         * Registers the action that aborts this attempt. Runs it right away if the attempt
+         * was already cancelled. The action may run more than once, so it should be idempotent.
+         */
+        public void onCancel(Runnable action) {
+            onCancel = action;
+            if (cancelled.get()) action.run();
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                Runnable action = onCancel;
+                if (action != null) action.run();
+            }
+        }
+    }
+
+    /**
+     * Thrown without calling upstream while the circuit is open.
+     */
+    public static class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public CircuitOpenException(String name) {
+            super("Circuit '" + name + "' is open");
+        }
+    }
+
+    /**
+     * Upstream rejected the request itself (a 4xx other than 408 or 429). Retrying would get
+     * the same answer, and upstream is healthy, so it is neither retried nor counted against
+     * the circuit.
+     */
+    public static class ClientErrorException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int code;
+
+        public ClientErrorException(String message, int code) {
+            super(message + ": " + code);
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+
+    /**
+     * Returns the exception for an unsuccessful HTTP status: a {@link ClientErrorException} for
+     * 4xx other than 408 (timeout) and 429 (rate limited), a plain retryable IOException otherwise.
+     *
+     * @param message what failed, e.g. "API error"
+     * @param code    the HTTP status code
+     */
+    public static IOException statusError(String message, int code) {
+        if (code >= 400 && code < 500 && code != 408 && code != 429) {
+            return new ClientErrorException(message, code);
+        }
+        return new IOException(message + ": " + code);
+    }
+
+    /**
+     * Resilience thresholds.
+     *
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param openMillis       how long the circuit stays open before a trial call
+     * @param maxRetries       retries after the first attempt
+     * @param baseBackoffMillis first backoff; doubles on every retry
+     * @param maxBackoffMillis cap for the backoff
+     * @param hedgeEnabled     whether to fire hedged requests
+     * @param hedgeMinSamples  latency samples needed before hedging starts
+     * @param maxThreads       threads running calls; when all are busy, calls run on the caller's
+     *                         thread, unhedged and not cancellable
+     */
+    public record Config(int failureThreshold, long openMillis, int maxRetries,
+                         long baseBackoffMillis, long maxBackoffMillis,
+                         boolean hedgeEnabled, int hedgeMinSamples, int maxThreads) {
+
+        /**
+         * Reads a config from system properties named {@code <prefix>.<field>}, using
+         * sensible defaults for anything not set.
+         */
+        public static Config fromSystemProperties(String prefix) {
+            return new Config(
+                    Integer.getInteger(prefix + ".failureThreshold", 5),
+                    Long.getLong(prefix + ".openMillis", 30_000),
+                    Integer.getInteger(prefix + ".maxRetries", 2),
+                    Long.getLong(prefix + ".baseBackoffMillis", 200),
+                    Long.getLong(prefix + ".maxBackoffMillis", 2_000),
+                    Boolean.parseBoolean(System.getProperty(prefix + ".hedgeEnabled", "true")),
+                    Integer.getInteger(prefix + ".hedgeMinSamples", 20),
+                    Integer.getInteger(prefix + ".maxThreads", 16));
+        }
+    }
+
+    // Size of the rolling window used to estimate p95 latency
+    private static final int LATENCY_WINDOW = 256;
+
+    private final String name;
+    private final Config config;
+    private final CircuitBreaker breaker;
+    // Runs calls; bounded, and rejects rather than queues when every thread is busy
+    private final ExecutorService executor;
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount = 0;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ResilientCaller(String name, Config config) {
+        this.name = name;
+        this.config = config;
+        this.breaker = new CircuitBreaker(name, config.failureThreshold(), config.openMillis());
+        this.executor = new ThreadPoolExecutor(0, Math.max(2, config.maxThreads()),
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "resilient-call");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Executes the call with circuit breaking, retries and hedging.
+     *
+     * @param call the upstream call
+     * @return the call's result
+     * @throws CircuitOpenException if the circuit is open
+     * @throws IOException          if every attempt failed
+     */
+    public <V> V execute(Call<V> call) throws IOException {
+        IOException last = null;
+        for (int attempt = 0; attempt <= config.maxRetries(); attempt++) {
+            if (!breaker.allowRequest()) {
+                rejected.incrementAndGet();
+                throw new CircuitOpenException(name);
+            }
+            try {
+                V value = hedged(call);
+                breaker.onSuccess();
+                return value;
+            } catch (ClientErrorException e) {
+                breaker.onAbandoned(); // Upstream answered; the request was wrong
+                throw e;
+            } catch (IOException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // Caller gave up (e.g. search budget exhausted): not upstream's fault, don't retry
+                    breaker.onAbandoned();
+                    throw e;
+                }
+                breaker.onFailure(); // Includes read and call timeouts, which are retried
+                last = e;
+            } catch (RuntimeException | Error e) {
+                breaker.onFailure(); // E.g. a response that could not be parsed
+                throw e;
+            }
+
+            if (attempt < config.maxRetries()) {
+                retries.incrementAndGet();
+                sleep(backoff(attempt));
+            }
+        }
+        throw last;
+    }
+
+    /**
+     * Runs the call on the pool, starting a second copy if the first is slower than the observed
+     * p95. The losing copy is cancelled, and every copy is cancelled if the caller is interrupted.
+     */
+    private <V> V hedged(Call<V> call) throws IOException {
+        Attempt primaryAttempt = new Attempt();
+        CompletableFuture<V> primary = submit(call, primaryAttempt);
+        if (primary == null) {
+            return timed(call, primaryAttempt); // Every thread is busy: run here instead
+        }
+
+        long p95 = config.hedgeEnabled() ? p95Millis() : -1;
+        if (p95 >= 0) {
+            try {
+                return primary.get(p95, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Primary is slower than usual: race it against a hedge
+            } catch (InterruptedException e) {
+                primaryAttempt.cancel();
+                throw interrupted();
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            }
+
+            Attempt hedgeAttempt = new Attempt();
+            CompletableFuture<V> hedge = submit(call, hedgeAttempt);
+            if (hedge != null) {
+                hedges.incrementAndGet();
+                CompletableFuture<V> first = new CompletableFuture<>();
+                AtomicInteger failures = new AtomicInteger();
+                race(primary, hedgeAttempt, first, failures);
+                race(hedge, primaryAttempt, first, failures);
+                return await(first, primaryAttempt, hedgeAttempt);
+            }
+        }
+        return await(primary, primaryAttempt);
+    }
+
+    // Completes first with the copy's result and cancels the other copy; fails once both failed
+    private static <V> void race(CompletableFuture<V> copy, Attempt other, CompletableFuture<V> first,
+                                 AtomicInteger failures) {
+        copy.whenComplete((v, t) -> {
+            if (t == null) {
+                if (first.complete(v)) other.cancel();
+            } else if (failures.incrementAndGet() == 2) {
+                first.completeExceptionally(t);
+            }
+        });
+    }
+
+    /**
+     * Waits for the result, cancelling the attempts if the wait is interrupted.
+     */
+    private <V> V await(CompletableFuture<V> future, Attempt... attempts) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            for (Attempt attempt : attempts) attempt.cancel();
+            throw interrupted();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    // Returns null if every thread is busy
+    private <V> CompletableFuture<V> submit(Call<V> call, Attempt attempt) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return timed(call, attempt);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private <V> V timed(Call<V> call, Attempt attempt) throws IOException {
+        long start = System.nanoTime();
+        V value = call.execute(attempt);
+        recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return value;
+    }
+
+    private synchronized void recordLatency(long millis) {
+        latencies[latencyCount % LATENCY_WINDOW] = millis;
+        latencyCount++;
+    }
+
+    /**
+     * Returns the p95 of recent successful call latencies, or -1 if there are too few samples.
+     */
+    public synchronized long p95Millis() {
+        int n = Math.min(latencyCount, LATENCY_WINDOW);
+        if (n < config.hedgeMinSamples()) return -1;
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(n * 0.95) - 1];
+    }
+
+    /**
+     * Full-jitter exponential backoff: a random delay up to base * 2^attempt, capped.
+     */
+    private long backoff(int attempt) {
+        long ceiling = Math.min(config.maxBackoffMillis(), config.baseBackoffMillis() << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during backoff");
+        }
+    }
+
+    private InterruptedIOException interrupted() {
+        Thread.currentThread().interrupt();
+        return new InterruptedIOException("Interrupted while waiting for " + name);
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+        if (cause instanceof IOException io) return io;
+        if (cause instanceof RuntimeException re) throw re;
+        if (cause instanceof Error err) throw err;
+        return new IOException(cause);
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return breaker.getState();
+    }
+
+    @Override
+    public String toString() {
+        return "ResilientCaller{" + name + ", circuit=" + breaker.getState() + ", p95=" + p95Millis()
+                + "ms, retries=" + retries + ", hedges=" + hedges + ", rejected=" + rejected + "}";
+    }
+}
@@ -0,0 +1,96 @@
+package bot.api;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent identical calls so they share one in-flight execution.
+ * The first caller for a key runs the call; everyone arriving while it is still
+ * running waits for the same result (or the same failure). The key is dropped as
+ * soon as the call completes, so nothing is retained afterwards.
+ * <p>
+ * The call runs on the first caller's thread. If that thread is interrupted (e.g. its own
+ * search budget ran out), the failure is not handed to the waiters: one of them takes over
+ * and runs the call again.
+ *
+ * @param <K> the key identifying identical calls
+ * @param <V> the result type
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * The call to coalesce.
+     */
+    @FunctionalInterface
+    public interface Call<V> {
+        V execute() throws IOException;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the call for the key, or joins the one already in flight.
+     *
+     * @param key  identifies identical calls
+     * @param call the call to run if none is in flight
+     * @return the shared result
+     * @throws IOException if the shared call failed, or this caller was interrupted
+     */
+    public V execute(K key, Call<V> call) throws IOException {
+        while (true) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+            if (existing == null) {
+                return lead(key, mine, call);
+            }
+            try {
+                return await(existing);
+            } catch (CancellationException e) {
+                // The leader was interrupted; take over, or join whoever took over first
+            }
+        }
+    }
+
+    private V lead(K key, CompletableFuture<V> mine, Call<V> call) throws IOException {
+        V value;
+        try {
+            value = call.execute();
+        } catch (Throwable t) {
+            // Unregister first, so a waiter that takes over starts a new call instead of rejoining this one
+            inFlight.remove(key, mine);
+            if (Thread.currentThread().isInterrupted()) {
+                mine.cancel(false); // Our interrupt is not the waiters' failure
+            } else {
+                mine.completeExceptionally(t); // Waiters see the same failure
+            }
+            throw t;
+        }
+        inFlight.remove(key, mine);
+        mine.complete(value);
+        return value;
+    }
+
+    /**
+     * Returns the number of calls currently in flight.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for shared call", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package bot.http;
+
+import okhttp3.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OkHttp event listener that times every outbound call: DNS, connect, TLS, time to first
+ * byte and total time. Each call is logged on completion and folded into per-host totals
+ * that can be read with {@link #stats()}.
+ */
+public class CallTimingListener extends EventListener {
+
+    /**
+     * Running totals for one host. Phase totals only include calls where the phase happened
+     * (a pooled connection skips DNS, connect and TLS).
+     */
+    public static class HostStats {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong newConnections = new AtomicLong();
+        final AtomicLong dnsMicros = new AtomicLong();
+        final AtomicLong connectMicros = new AtomicLong();
+        final AtomicLong tlsMicros = new AtomicLong();
+        final AtomicLong ttfbMicros = new AtomicLong();
+        final AtomicLong totalMicros = new AtomicLong();
+        final AtomicLong maxTotalMicros = new AtomicLong();
+
+        @Override
+        public String toString() {
+            long n = Math.max(1, calls.get());
+            long c = Math.max(1, newConnections.get());
+            return "calls=" + calls + ", failures=" + failures + ", newConnections=" + newConnections
+                    + ", avgDns=" + ms(dnsMicros.get() / c) + ", avgConnect=" + ms(connectMicros.get() / c)
+                    + ", avgTls=" + ms(tlsMicros.get() / c) + ", avgTtfb=" + ms(ttfbMicros.get() / n)
+                    + ", avgTotal=" + ms(totalMicros.get() / n) + ", maxTotal=" + ms(maxTotalMicros.get());
+        }
+    }
+
+    /**
+     * Creates one listener per call.
+     */
+    public static final EventListener.Factory FACTORY = call -> new CallTimingListener();
+
+    private static final Map<String, HostStats> statsByHost = new ConcurrentHashMap<>();
+
+    private long callStart, dnsStart, connectStart, tlsStart;
+    private long dns = -1, connect = -1, tls = -1, ttfb = -1;
+
+    /**
+     * Returns the per-host totals collected so far.
+     */
+    public static Map<String, HostStats> stats() {
+        return statsByHost;
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> list) {
+        dns = System.nanoTime() - dnsStart;
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        tlsStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        tls = System.nanoTime() - tlsStart;
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+        connect = System.nanoTime() - connectStart;
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        if (ttfb < 0) ttfb = System.nanoTime() - callStart;
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        finish(call, false);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        finish(call, true);
+    }
+
+    private void finish(Call call, boolean failed) {
+        long total = System.nanoTime() - callStart;
+        String host = call.request().url().host();
+        HostStats s = statsByHost.computeIfAbsent(host, h -> new HostStats());
+
+        s.calls.incrementAndGet();
+        if (failed) s.failures.incrementAndGet();
+        if (connect >= 0) s.newConnections.incrementAndGet();
+        if (dns >= 0) s.dnsMicros.addAndGet(micros(dns));
+        if (connect >= 0) s.connectMicros.addAndGet(micros(connect));
+        if (tls >= 0) s.tlsMicros.addAndGet(micros(tls));
+        if (ttfb >= 0) s.ttfbMicros.addAndGet(micros(ttfb));
+        s.totalMicros.addAndGet(micros(total));
+        s.maxTotalMicros.accumulateAndGet(micros(total), Math::max);
+
+        System.out.println("⏱️ " + call.request().method() + " " + host + call.request().url().encodedPath()
+                + (failed ? " FAILED" : "")
+                + " dns=" + phase(dns) + " connect=" + phase(connect) + " tls=" + phase(tls)
+                + " ttfb=" + phase(ttfb) + " total=" + phase(total));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static String phase(long nanos) {
+        return nanos < 0 ? "-" : ms(micros(nanos));
+    }
+
+    private static String ms(long micros) {
+        return String.format("%.1fms", micros / 1000.0);
+    }
+}
@@ -0,0 +1,103 @@
+package bot.http;
+
+import okhttp3.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared HTTP transport for every outbound client in the bot.
+ * All clients are derived from one base {@link OkHttpClient}, so they share the dispatcher
+ * threads and the {@link CallTimingListener}. Each host gets its own connection pool, its own
+ * dispatcher capping asynchronous calls in flight (extra calls wait in the dispatcher queue,
+ * not on a thread) and its own timeouts. Synchronous {@code execute()} calls bypass the
+ * dispatcher limits; they are bounded by the pools that make them (the search executors and
+ * {@code ResilientCaller}'s worker pool).
+ */
+public class HttpTransport {
+
+    /**
+     * Connection and timeout settings for one upstream endpoint.
+     *
+     * @param host             host name, used to share the pool and concurrency limit
+     * @param maxConcurrent    maximum asynchronous calls in flight to this host
+     * @param maxIdle          idle connections kept in this host's pool
+     * @param connectTimeoutMs connect timeout
+     * @param readTimeoutMs    read timeout
+     * @param writeTimeoutMs   write timeout
+     * @param callTimeoutMs    timeout for the whole call (0 = none)
+     */
+    public record Endpoint(String host, int maxConcurrent, int maxIdle,
+                           long connectTimeoutMs, long readTimeoutMs, long writeTimeoutMs, long callTimeoutMs) {
+
+        /**
+         * Reads an endpoint from system properties named {@code http.<name>.<field>},
+         * falling back to the given defaults.
+         */
+        static Endpoint configured(String name, Endpoint defaults) {
+            String p = "http." + name + ".";
+            return new Endpoint(defaults.host(),
+                    Integer.getInteger(p + "maxConcurrent", defaults.maxConcurrent()),
+                    Integer.getInteger(p + "maxIdle", defaults.maxIdle()),
+                    Long.getLong(p + "connectTimeoutMs", defaults.connectTimeoutMs()),
+                    Long.getLong(p + "readTimeoutMs", defaults.readTimeoutMs()),
+                    Long.getLong(p + "writeTimeoutMs", defaults.writeTimeoutMs()),
+                    Long.getLong(p + "callTimeoutMs", defaults.callTimeoutMs()));
+        }
+    }
+
+    // EXPERTS.AI search API: small JSON pages, should be quick
+    public static final Endpoint EXPERTS_AI = Endpoint.configured("expertsai",
+            new Endpoint("experts.ai", 8, 8, 3_000, 5_000, 5_000, 8_000));
+
+    // OpenAI chat completions: long prompts and slow generations
+    public static final Endpoint OPENAI = Endpoint.configured("openai",
+            new Endpoint("api.openai.com", 16, 8, 5_000, 60_000, 30_000, 120_000));
+
+    // OkHttp's default dispatcher pool, shared by every per-host dispatcher below
+    private static final ExecutorService threads = new Dispatcher().executorService();
+
+    private static final int MAX_REQUESTS = Integer.getInteger("http.maxRequests", 64);
+
+    private static final OkHttpClient base = new OkHttpClient.Builder()
+            .dispatcher(dispatcher(MAX_REQUESTS, Integer.getInteger("http.maxRequestsPerHost", 16)))
+            .eventListenerFactory(CallTimingListener.FACTORY)
+            .build();
+
+    private static final Map<String, OkHttpClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shared client for an endpoint, creating it on first use.
+     *
+     * @param endpoint the endpoint settings
+     * @return a client using that endpoint's pool, dispatcher limit and timeouts
+     */
+    public static OkHttpClient client(Endpoint endpoint) {
+        return clients.computeIfAbsent(endpoint.host(), h -> base.newBuilder()
+                .connectionPool(new ConnectionPool(endpoint.maxIdle(), 5, TimeUnit.MINUTES))
+                .dispatcher(dispatcher(MAX_REQUESTS, endpoint.maxConcurrent()))
+                .connectTimeout(endpoint.connectTimeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(endpoint.readTimeoutMs(), TimeUnit.MILLISECONDS)
+                .writeTimeout(endpoint.writeTimeoutMs(), TimeUnit.MILLISECONDS)
+                .callTimeout(endpoint.callTimeoutMs(), TimeUnit.MILLISECONDS)
+                .build());
+    }
+
+    private static Dispatcher dispatcher(int maxRequests, int maxRequestsPerHost) {
+        Dispatcher d = new Dispatcher(threads);
+        d.setMaxRequests(maxRequests);
+        d.setMaxRequestsPerHost(maxRequestsPerHost);
+        return d;
+    }
+
+    /**
+     * Returns a summary of call timings, one line per host, for logging.
+     */
+    public static String stats() {
+        StringBuilder sb = new StringBuilder();
+        CallTimingListener.stats().forEach((host, s) -> sb.append(host).append(": ").append(s).append("\n"));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,213 @@
+package bot.search;
+
+import bot.api.OpportunityClient.Opportunity;
+
+import java.util.*;
+
+/**
+ * Immutable in-memory inverted index over opportunities with BM25 scoring.
+ * Title, technical requirements, formal requirements and description are indexed with
+ * per-field weights. Posting lists are stored as primitive int arrays, so scoring a few
+ * thousand opportunities is a tight loop over arrays without any boxing.
+ */
+public class Bm25Index {
+
+    // Standard BM25 parameters
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // How much a term occurrence counts in each field
+    private static final int TITLE_WEIGHT = 3;
+    private static final int TECH_REQ_WEIGHT = 2;
+    private static final int FORM_REQ_WEIGHT = 1;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final Opportunity[] docs;
+    private final Map<String, Integer> termIds;
+    private final int[][] postingDocs;   // term id -> doc ids containing the term
+    private final int[][] postingFreqs;  // term id -> weighted term frequency per posting
+    private final float[] idf;           // term id -> inverse document frequency
+    private final float[] lengthNorm;    // doc id -> K1 * (1 - B + B * dl / avgdl)
+
+    private Bm25Index(Opportunity[] docs, Map<String, Integer> termIds, int[][] postingDocs,
+                      int[][] postingFreqs, float[] idf, float[] lengthNorm) {
+        this.docs = docs;
+        this.termIds = termIds;
+        this.postingDocs = postingDocs;
+        this.postingFreqs = postingFreqs;
+        this.idf = idf;
+        this.lengthNorm = lengthNorm;
+    }
+
+    /**
+     * Builds an index over the given opportunities.
+     *
+     * @param opportunities the opportunities to index
+     * @return a new index
+     */
+    public static Bm25Index build(Collection<Opportunity> opportunities) {
+        Opportunity[] docs = opportunities.toArray(new Opportunity[0]);
+        Map<String, Integer> termIds = new HashMap<>();
+        List<int[]> docsPerTerm = new ArrayList<>();   // growable [size, d0, d1, ...]
+        List<int[]> freqsPerTerm = new ArrayList<>();
+        int[] docLength = new int[docs.length];
+        long totalLength = 0;
+
+        for (int d = 0; d < docs.length; d++) {
+            Map<String, Integer> tf = new HashMap<>();
+            addField(tf, docs[d].title(), TITLE_WEIGHT);
+            addField(tf, docs[d].techReq(), TECH_REQ_WEIGHT);
+            addField(tf, docs[d].formReq(), FORM_REQ_WEIGHT);
+            addField(tf, docs[d].description(), DESCRIPTION_WEIGHT);
+
+            for (Map.Entry<String, Integer> e : tf.entrySet()) {
+                Integer id = termIds.get(e.getKey());
+                if (id == null) {
+                    id = termIds.size();
+                    termIds.put(e.getKey(), id);
+                    docsPerTerm.add(new int[5]);
+                    freqsPerTerm.add(new int[5]);
+                }
+                docsPerTerm.set(id, append(docsPerTerm.get(id), d));
+                freqsPerTerm.set(id, append(freqsPerTerm.get(id), e.getValue()));
+                docLength[d] += e.getValue();
+            }
+            totalLength += docLength[d];
+        }
+
+        int terms = termIds.size();
+        int[][] postingDocs = new int[terms][];
+        int[][] postingFreqs = new int[terms][];
+        float[] idf = new float[terms];
+        for (int t = 0; t < terms; t++) {
+            postingDocs[t] = trim(docsPerTerm.get(t));
+            postingFreqs[t] = trim(freqsPerTerm.get(t));
+            int df = postingDocs[t].length;
+            idf[t] = (float) Math.log(1 + (docs.length - df + 0.5) / (df + 0.5));
+        }
+
+        float avgLength = docs.length == 0 ? 1f : Math.max(1f, (float) totalLength / docs.length);
+        float[] lengthNorm = new float[docs.length];
+        for (int d = 0; d < docs.length; d++) {
+            lengthNorm[d] = K1 * (1 - B + B * docLength[d] / avgLength);
+        }
+
+        return new Bm25Index(docs, termIds, postingDocs, postingFreqs, idf, lengthNorm);
+    }
+
+    /**
+     * Returns the k opportunities scoring highest for the query, best first.
+     * Opportunities that share no term with the query are never returned.
+     *
+     * @param query free text, e.g. a student's skills and career interest
+     * @param k     maximum number of results
+     * @return the ranked opportunities
+     */
+    public List<Opportunity> topK(String query, int k) {
+        if (docs.length == 0 || k <= 0) return List.of();
+
+        float[] scores = new float[docs.length];
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            Integer t = termIds.get(term);
+            if (t == null) continue;
+            int[] postings = postingDocs[t];
+            int[] freqs = postingFreqs[t];
+            float termIdf = idf[t];
+            for (int i = 0; i < postings.length; i++) {
+                int d = postings[i];
+                float tf = freqs[i];
+                scores[d] += termIdf * tf * (K1 + 1) / (tf + lengthNorm[d]);
+            }
+        }
+
+        // Min-heap of doc ids ordered by score, holding the best k seen so far
+        int[] heap = new int[Math.min(k, docs.length)];
+        int size = 0;
+        for (int d = 0; d < scores.length; d++) {
+            if (scores[d] <= 0) continue;
+            if (size < heap.length) {
+                heap[size] = d;
+                siftUp(heap, size++, scores);
+            } else if (scores[d] > scores[heap[0]]) {
+                heap[0] = d;
+                siftDown(heap, size, scores);
+            }
+        }
+
+        Opportunity[] ranked = new Opportunity[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ranked[i] = docs[heap[0]];
+            heap[0] = heap[i];
+            siftDown(heap, i, scores);
+        }
+        return Arrays.asList(ranked);
+    }
+
+    /**
+     * Returns the number of indexed opportunities.
+     */
+    public int size() {
+        return docs.length;
+    }
+
+    /**
+     * Splits text into lowercase terms. Letters, digits, '+' and '#' are kept together
+     * so technology names like "c++" and "c#" survive.
+     *
+     * @param text the text to split (may be null)
+     * @return the terms in order of appearance
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) return tokens;
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}+#]+")) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static void addField(Map<String, Integer> tf, String text, int weight) {
+        for (String token : tokenize(text)) {
+            tf.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private static int[] append(int[] list, int value) {
+        int size = list[0] + 1;
+        if (size >= list.length) list = Arrays.copyOf(list, list.length * 2);
+        list[size] = value;
+        list[0] = size;
+        return list;
+    }
+
+    private static int[] trim(int[] list) {
+        return Arrays.copyOfRange(list, 1, list[0] + 1);
+    }
+
+    private static void siftUp(int[] heap, int i, float[] scores) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (scores[heap[i]] >= scores[heap[parent]]) break;
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, float[] scores) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1, right = left + 1, smallest = i;
+            if (left < size && scores[heap[left]] < scores[heap[smallest]]) smallest = left;
+            if (right < size && scores[heap[right]] < scores[heap[smallest]]) smallest = right;
+            if (smallest == i) return;
+            swap(heap, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+}
@@ -0,0 +1,325 @@
+package bot.search;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plans the upstream queries for a keyword search.
+ * Terms are normalized, plurals of common English nouns are singularized (technology and skill
+ * names are left as typed), terms are mapped through a synonym/skill table, and stopwords,
+ * duplicates and phrases already covered by a broader term are dropped. The page
+ * depth of each remaining term is chosen from how many hits it returned in past searches.
+ * Every dropped token is reported with the reason, so the plan can be logged.
+ */
+public class QueryPlanner {
+
+    /**
+     * A term to send upstream and how many pages to fetch for it.
+     */
+    public record PlannedTerm(String term, int pages) {
+    }
+
+    /**
+     * A token that was not sent upstream, and why.
+     */
+    public record Removal(String token, String reason) {
+    }
+
+    /**
+     * The result of planning a keyword string.
+     */
+    public record QueryPlan(List<PlannedTerm> terms, List<Removal> removed) {
+
+        /**
+         * Returns the maximum number of upstream calls this plan can make.
+         */
+        public int maxCalls() {
+            return terms.stream().mapToInt(PlannedTerm::pages).sum();
+        }
+
+        /**
+         * Returns a one-line summary of the plan for logging.
+         */
+        public String describe() {
+            StringBuilder sb = new StringBuilder();
+            for (PlannedTerm t : terms) {
+                if (!sb.isEmpty()) sb.append(", ");
+                sb.append("'").append(t.term()).append("'×").append(t.pages());
+            }
+            sb.append(" (max ").append(maxCalls()).append(" calls)");
+            for (Removal r : removed) {
+                sb.append("; dropped '").append(r.token()).append("': ").append(r.reason());
+            }
+            return sb.toString();
+        }
+    }
+
+    // Optional classpath resource with extra "alias=canonical" entries
+    private static final String SYNONYMS_FILE = "/synonyms.properties";
+
+    private static final int MAX_PAGES = 3;
+
+    // Words that say nothing about a skill or role; also dropped by VectorMatcher
+    static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "and", "or", "the", "of", "in", "on", "at", "to", "for", "with", "as", "by",
+            "my", "i", "im", "am", "is", "are", "be", "some", "any", "etc", "other", "others",
+            "position", "positions", "role", "roles", "job", "jobs", "work", "experience",
+            "developer", "developers", "engineer", "engineering", "skills", "skill", "knowledge");
+
+    // Singular English nouns whose plurals are singularized; anything else is searched as typed
+    private static final Set<String> ENGLISH_NOUNS = Set.of(
+            "internship", "database", "language", "framework", "library", "system", "technology",
+            "tool", "service", "application", "network", "algorithm", "microservice", "container",
+            "server", "interface", "process", "class", "platform", "design", "test", "project",
+            "solution", "model", "game", "website", "product", "startup", "company", "student",
+            "graduate", "intern", "team", "task", "analyst", "scientist", "tester", "manager");
+
+    // Skill and position names from the bot's menus; never stemmed even if they end in "s"
+    private static final Set<String> SKILL_TERMS = Set.of(
+            "devops", "kubernetes", "jenkins", "windows", "pandas", "sass", "redis", "ios", "macos",
+            "aws", "js", "css", "nodejs", "nextjs", "vuejs", "express", "rails", "graphics", "analytics");
+
+    private static final Map<String, String> DEFAULT_SYNONYMS = Map.ofEntries(
+            Map.entry("js", "javascript"),
+            Map.entry("node.js", "node"),
+            Map.entry("nodejs", "node"),
+            Map.entry("node js", "node"),
+            Map.entry("reactjs", "react"),
+            Map.entry("react.js", "react"),
+            Map.entry("ts", "typescript"),
+            Map.entry("py", "python"),
+            Map.entry("golang", "go"),
+            Map.entry("k8s", "kubernetes"),
+            Map.entry("spring boot", "spring"),
+            Map.entry("springboot", "spring"),
+            Map.entry("c++", "cpp"),
+            Map.entry("c#", "csharp"),
+            Map.entry("asp.net", "aspnet"),
+            Map.entry("postgresql", "sql"),
+            Map.entry("postgres", "sql"),
+            Map.entry("mysql", "sql"),
+            Map.entry("ml", "machine learning"),
+            Map.entry("dl", "deep learning"),
+            Map.entry("data_science", "data science"),
+            Map.entry("customer_service", "customer service"),
+            Map.entry("software_tool", "software tool"),
+            Map.entry("cache_storage", "cache storage"),
+            Map.entry("full stack", "fullstack"),
+            Map.entry("full-stack", "fullstack"),
+            Map.entry("front end", "frontend"),
+            Map.entry("front-end", "frontend"),
+            Map.entry("back end", "backend"),
+            Map.entry("back-end", "backend"),
+            Map.entry("dev ops", "devops"),
+            Map.entry("quality assurance", "qa"),
+            Map.entry("os", "operating systems"),
+            Map.entry("operating system", "operating systems"));
+
+    private final Map<String, String> synonyms;
+    private final Set<String> knownPhrases;
+    // Canonical term -> every alias that maps to it, for expand()
+    private final Map<String, List<String>> aliases;
+    // Synonym keys and values plus SKILL_TERMS: known names that stemming must not touch
+    private final Set<String> knownTerms;
+    private final int pageLimit;
+    // Term -> hits seen the last time it was searched
+    private final Map<String, Integer> history = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a planner with the given synonym table.
+     *
+     * @param synonyms  alias -> canonical term (keys and values lowercase)
+     * @param pageLimit results per upstream page, used to turn past hit counts into page depth
+     */
+    public QueryPlanner(Map<String, String> synonyms, int pageLimit) {
+        this.synonyms = Map.copyOf(synonyms);
+        this.pageLimit = pageLimit;
+
+        // Multi-word canonical terms are kept together when typed out in full
+        Set<String> phrases = new HashSet<>();
+        for (String value : synonyms.values()) {
+            if (value.contains(" ")) phrases.add(value);
+        }
+        this.knownPhrases = Set.copyOf(phrases);
+
+        Map<String, List<String>> reverse = new HashMap<>();
+        synonyms.forEach((alias, canonical) -> reverse.computeIfAbsent(canonical, c -> new ArrayList<>()).add(alias));
+        reverse.replaceAll((canonical, list) -> List.copyOf(list));
+        this.aliases = Map.copyOf(reverse);
+
+        Set<String> known = new HashSet<>(SKILL_TERMS);
+        known.addAll(synonyms.keySet());
+        known.addAll(synonyms.values());
+        this.knownTerms = Set.copyOf(known);
+    }
+
+    /**
+     * Creates a planner with the built-in synonyms, extended or overridden by the entries
+     * in {@code /synonyms.properties} if that resource is on the classpath.
+     *
+     * @param pageLimit results per upstream page
+     * @return a new planner
+     */
+    public static QueryPlanner load(int pageLimit) {
+        Map<String, String> table = new HashMap<>(DEFAULT_SYNONYMS);
+        try (InputStream in = QueryPlanner.class.getResourceAsStream(SYNONYMS_FILE)) {
+            if (in != null) {
+                Properties props = new Properties();
+                props.load(in);
+                props.forEach((k, v) -> table.put(k.toString().trim().toLowerCase(), v.toString().trim().toLowerCase()));
+                System.out.println("📖 Loaded " + props.size() + " synonyms from " + SYNONYMS_FILE);
+            }
+        } catch (IOException e) {
+            System.out.println("⚠️ Could not read " + SYNONYMS_FILE + ": " + e.getMessage());
+        }
+        return new QueryPlanner(table, pageLimit);
+    }
+
+    /**
+     * Plans the upstream queries for a space- or comma-separated keyword string.
+     *
+     * @param keywords the student's skills and interests
+     * @return the terms to search and the tokens that were dropped
+     */
+    public QueryPlan plan(String keywords) {
+        List<Removal> removed = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        for (String raw : keywords.toLowerCase().replace(",", " ").split("\\s+")) {
+            String token = normalize(raw);
+            if (!token.isEmpty()) tokens.add(token);
+        }
+
+        // 1) Canonicalize, preferring two-word phrases ("spring boot") over single tokens
+        LinkedHashSet<String> canonical = new LinkedHashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (i + 1 < tokens.size()) {
+                String phrase = token + " " + tokens.get(i + 1);
+                String mapped = knownPhrases.contains(phrase) ? phrase : synonyms.get(phrase);
+                if (mapped != null) {
+                    addCanonical(canonical, mapped, phrase, removed);
+                    i++;
+                    continue;
+                }
+            }
+            if (STOPWORDS.contains(token)) {
+                removed.add(new Removal(token, "stopword"));
+                continue;
+            }
+            String mapped = synonyms.get(token);
+            if (mapped == null) {
+                String stemmed = stem(token);
+                mapped = synonyms.getOrDefault(stemmed, stemmed);
+            }
+            addCanonical(canonical, mapped, token, removed);
+        }
+
+        // 2) Drop phrases already covered by one of their words ("data science" vs "data"):
+        //    every result for the phrase also matches the broader word, so recall is unchanged
+        List<PlannedTerm> planned = new ArrayList<>();
+        for (String term : canonical) {
+            String broader = term.contains(" ") ? broaderTerm(term, canonical) : null;
+            if (broader != null) {
+                removed.add(new Removal(term, "covered by broader term '" + broader + "'"));
+                continue;
+            }
+            planned.add(new PlannedTerm(term, pagesFor(term)));
+        }
+
+        return new QueryPlan(planned, removed);
+    }
+
+    /**
+     * Expands a keyword string for matching against opportunity text locally. Every token is
+     * kept and joined by its canonical term and all aliases of that term, so the ids stored
+     * from the menus ("cpp", "ml", "aspnet") also match the forms that appear in postings
+     * ("c++", "machine learning", "asp.net").
+     *
+     * @param keywords the student's skills and interests
+     * @return the keywords plus their surface forms, space-separated
+     */
+    public String expand(String keywords) {
+        LinkedHashSet<String> forms = new LinkedHashSet<>();
+        for (String raw : keywords.toLowerCase().replace(",", " ").split("\\s+")) {
+            String token = normalize(raw);
+            if (token.isEmpty()) continue;
+            String canonical = synonyms.getOrDefault(token, token);
+            forms.add(token);
+            forms.add(canonical);
+            forms.addAll(aliases.getOrDefault(canonical, List.of()));
+        }
+        return String.join(" ", forms);
+    }
+
+    /**
+     * Records how many results a term returned, so future plans can pick its page depth.
+     *
+     * @param term the planned term that was searched
+     * @param hits number of opportunities it returned
+     */
+    public void recordHits(String term, int hits) {
+        history.put(term, hits);
+    }
+
+    private void addCanonical(Set<String> canonical, String mapped, String original, List<Removal> removed) {
+        if (!canonical.add(mapped)) {
+            removed.add(new Removal(original, "duplicate of '" + mapped + "'"));
+        } else if (!mapped.equals(original)) {
+            System.out.println("🔁 Query term '" + original + "' → '" + mapped + "'");
+        }
+    }
+
+    // Returns a single-word term in the plan that is one of the phrase's words, or null
+    private static String broaderTerm(String phrase, Set<String> terms) {
+        for (String word : phrase.split(" ")) {
+            if (terms.contains(word)) return word;
+        }
+        return null;
+    }
+
+    /**
+     * Picks how many pages to fetch: unknown terms get the full depth, terms that came back
+     * short before only get as many pages as they needed.
+     */
+    private int pagesFor(String term) {
+        Integer hits = history.get(term);
+        if (hits == null) return MAX_PAGES;
+        return Math.max(1, Math.min(MAX_PAGES, hits / pageLimit + 1));
+    }
+
+    /**
+     * Trims punctuation around a token, keeping characters that are part of technology names.
+     */
+    private static String normalize(String token) {
+        int start = 0, end = token.length();
+        while (start < end && !isTermChar(token.charAt(start))) start++;
+        while (end > start && !isTermChar(token.charAt(end - 1)) && token.charAt(end - 1) != '+' && token.charAt(end - 1) != '#') end--;
+        return token.substring(start, end);
+    }
+
+    private static boolean isTermChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * Singularizes plurals of the nouns in {@link #ENGLISH_NOUNS} ("databases", "companies",
+     * "processes"). Skill and technology names, and any word not in the list, are returned as
+     * typed, so "devops" or "kubernetes" reach the API unchanged.
+     */
+    private String stem(String token) {
+        if (knownTerms.contains(token) || !token.endsWith("s")) return token;
+        if (token.endsWith("ies")) {
+            String singular = token.substring(0, token.length() - 3) + "y";
+            if (ENGLISH_NOUNS.contains(singular)) return singular;
+        }
+        String withoutS = token.substring(0, token.length() - 1);
+        if (ENGLISH_NOUNS.contains(withoutS)) return withoutS;
+        if (token.endsWith("es")) {
+            String withoutEs = token.substring(0, token.length() - 2);
+            if (ENGLISH_NOUNS.contains(withoutEs)) return withoutEs;
+        }
+        return token;
+    }
+}
@@ -0,0 +1,234 @@
+package bot.search;
+
+import bot.api.OpportunityClient.Opportunity;
+
+import java.util.*;
+
+/**
+ * Immutable cosine-similarity matcher between free text (e.g. a whole CV) and opportunities.
+ * Terms are mapped to one of {@code 2^18} hashed features, so no vocabulary has to be kept,
+ * and weighted with sublinear TF times IDF. Stopwords are dropped, and a term found in every
+ * opportunity gets an IDF of zero, so boilerplate shared by all postings doesn't add to the
+ * similarity. Document vectors are L2-normalized and stored in
+ * compressed sparse row form: one int array of feature ids and one float array of weights
+ * for all documents, plus row offsets. A query is a single pass over those arrays.
+ */
+public class VectorMatcher {
+
+    private static final int FEATURE_BITS = 18;
+    private static final int FEATURES = 1 << FEATURE_BITS;
+
+    // How much a term occurrence counts in each field
+    private static final int TITLE_WEIGHT = 3;
+    private static final int TECH_REQ_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final Opportunity[] docs;
+    private final int[] rowStart;     // doc id -> first index in features/weights; rowStart[n] = nnz
+    private final int[] features;     // feature id per non-zero
+    private final float[] weights;    // normalized tf-idf weight per non-zero
+    private final float[] idf;        // feature id -> inverse document frequency
+
+    private VectorMatcher(Opportunity[] docs, int[] rowStart, int[] features, float[] weights, float[] idf) {
+        this.docs = docs;
+        this.rowStart = rowStart;
+        this.features = features;
+        this.weights = weights;
+        this.idf = idf;
+    }
+
+    /**
+     * Builds a matcher over the given opportunities, using title, technical requirements
+     * and description.
+     *
+     * @param opportunities the opportunities to index
+     * @return a new matcher
+     */
+    public static VectorMatcher build(Collection<Opportunity> opportunities) {
+        Opportunity[] docs = opportunities.toArray(new Opportunity[0]);
+        List<int[]> docFeatures = new ArrayList<>(docs.length);
+        List<float[]> docCounts = new ArrayList<>(docs.length);
+        int[] df = new int[FEATURES];
+        int nnz = 0;
+
+        FeatureCounter counter = new FeatureCounter();
+        for (Opportunity doc : docs) {
+            counter.add(doc.title(), TITLE_WEIGHT);
+            counter.add(doc.techReq(), TECH_REQ_WEIGHT);
+            counter.add(doc.description(), DESCRIPTION_WEIGHT);
+            counter.count();
+
+            int[] f = Arrays.copyOf(counter.features, counter.distinct);
+            float[] c = Arrays.copyOf(counter.counts, counter.distinct);
+            for (int feature : f) df[feature]++;
+            docFeatures.add(f);
+            docCounts.add(c);
+            nnz += f.length;
+        }
+
+        // No "+ 1": a term in nearly every document weighs close to nothing instead of at least 1
+        float[] idf = new float[FEATURES];
+        for (int f = 0; f < FEATURES; f++) {
+            idf[f] = (float) Math.log((1.0 + docs.length) / (1.0 + df[f]));
+        }
+
+        int[] rowStart = new int[docs.length + 1];
+        int[] features = new int[nnz];
+        float[] weights = new float[nnz];
+        int pos = 0;
+        for (int d = 0; d < docs.length; d++) {
+            rowStart[d] = pos;
+            int[] f = docFeatures.get(d);
+            float[] c = docCounts.get(d);
+            double norm = 0;
+            for (int i = 0; i < f.length; i++) {
+                float w = (float) (1 + Math.log(c[i])) * idf[f[i]];
+                features[pos + i] = f[i];
+                weights[pos + i] = w;
+                norm += (double) w * w;
+            }
+            float inv = norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0f;
+            for (int i = 0; i < f.length; i++) weights[pos + i] *= inv;
+            pos += f.length;
+        }
+        rowStart[docs.length] = pos;
+
+        return new VectorMatcher(docs, rowStart, features, weights, idf);
+    }
+
+    /**
+     * Returns the k opportunities most similar to the text, by cosine similarity.
+     * Opportunities with no feature in common with the text are never returned.
+     *
+     * @param text free text, e.g. a student's CV
+     * @param k    maximum number of results
+     * @return the ranked opportunities
+     */
+    public List<Opportunity> topK(String text, int k) {
+        if (docs.length == 0 || k <= 0) return List.of();
+
+        // Dense query vector, so each document is scored with plain array lookups
+        FeatureCounter counter = new FeatureCounter();
+        counter.add(text, 1);
+        counter.count();
+        if (counter.distinct == 0) return List.of();
+        float[] query = new float[FEATURES];
+        double norm = 0;
+        for (int i = 0; i < counter.distinct; i++) {
+            int f = counter.features[i];
+            float w = (float) (1 + Math.log(counter.counts[i])) * idf[f];
+            query[f] = w;
+            norm += (double) w * w;
+        }
+        if (norm == 0) return List.of(); // Only terms found in every document
+        float inv = (float) (1 / Math.sqrt(norm));
+
+        // Min-heap of doc ids ordered by score, holding the best k seen so far
+        float[] scores = new float[docs.length];
+        int[] heap = new int[Math.min(k, docs.length)];
+        int size = 0;
+        for (int d = 0; d < docs.length; d++) {
+            float dot = 0;
+            for (int i = rowStart[d], end = rowStart[d + 1]; i < end; i++) {
+                dot += weights[i] * query[features[i]];
+            }
+            if (dot <= 0) continue;
+            scores[d] = dot * inv;
+            if (size < heap.length) {
+                heap[size] = d;
+                siftUp(heap, size++, scores);
+            } else if (scores[d] > scores[heap[0]]) {
+                heap[0] = d;
+                siftDown(heap, size, scores);
+            }
+        }
+
+        Opportunity[] ranked = new Opportunity[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ranked[i] = docs[heap[0]];
+            heap[0] = heap[i];
+            siftDown(heap, i, scores);
+        }
+        return Arrays.asList(ranked);
+    }
+
+    /**
+     * Returns the number of indexed opportunities.
+     */
+    public int size() {
+        return docs.length;
+    }
+
+    /**
+     * Counts weighted feature occurrences with primitive arrays only: every occurrence of a
+     * non-stopword is appended {@code weight} times, then the list is sorted and runs are counted.
+     * Reusable; {@link #count()} resets it for the next text.
+     */
+    private static class FeatureCounter {
+        int[] occurrences = new int[256];
+        int size;
+        int[] features = new int[256];
+        float[] counts = new float[256];
+        int distinct;
+
+        void add(String text, int weight) {
+            for (String token : Bm25Index.tokenize(text)) {
+                if (QueryPlanner.STOPWORDS.contains(token)) continue;
+                int f = feature(token);
+                for (int w = 0; w < weight; w++) {
+                    if (size == occurrences.length) occurrences = Arrays.copyOf(occurrences, size * 2);
+                    occurrences[size++] = f;
+                }
+            }
+        }
+
+        void count() {
+            Arrays.sort(occurrences, 0, size);
+            if (features.length < size) {
+                features = new int[size];
+                counts = new float[size];
+            }
+            distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct > 0 && features[distinct - 1] == occurrences[i]) {
+                    counts[distinct - 1]++;
+                } else {
+                    features[distinct] = occurrences[i];
+                    counts[distinct++] = 1;
+                }
+            }
+            size = 0;
+        }
+    }
+
+    // Spreads String.hashCode's bits before masking, so similar tokens don't cluster
+    private static int feature(String token) {
+        int h = token.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (FEATURES - 1);
+    }
+
+    private static void siftUp(int[] heap, int i, float[] scores) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[heap[i]] >= scores[heap[parent]]) break;
+            int tmp = heap[i];
+            heap[i] = heap[parent];
+            heap[parent] = tmp;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, float[] scores) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) return;
+            int smallest = left + 1 < size && scores[heap[left + 1]] < scores[heap[left]] ? left + 1 : left;
+            if (scores[heap[i]] <= scores[heap[smallest]]) return;
+            int tmp = heap[i];
+            heap[i] = heap[smallest];
+            heap[smallest] = tmp;
+            i = smallest;
+        }
+    }
+}
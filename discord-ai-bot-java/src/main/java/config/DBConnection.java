@@ -1,25 +1,97 @@
 package config;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.util.Properties;
 import java.io.InputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * DBConnection is responsible for reading database connection properties from
- * a properties file and providing open JDBC Connections.
+ * DBConnection provides pooled JDBC Connections to the configured database.
+ * The properties file is read once, on first use, and a HikariCP pool is built from it.
+ * Closing a connection returns it to the pool, so DAOs keep using try-with-resources.
+ *
+ * <p>Besides {@code db.url}, {@code db.user} and {@code db.password}, db.properties may set:
+ * <ul>
+ *   <li>{@code db.pool.maximumPoolSize} (default 10), {@code db.pool.minimumIdle} (default 2)</li>
+ *   <li>{@code db.pool.connectionTimeoutMs} (default 5000) – how long a caller waits for a connection</li>
+ *   <li>{@code db.pool.idleTimeoutMs} (default 600000), {@code db.pool.maxLifetimeMs} (default 1800000)</li>
+ *   <li>{@code db.pool.validationTimeoutMs} (default 3000), {@code db.pool.leakDetectionThresholdMs} (default 0 = off)</li>
+ *   <li>{@code db.pool.prepareThreshold} (default 1), {@code db.pool.preparedStatementCacheQueries} (default 256),
+ *       {@code db.pool.preparedStatementCacheSizeMiB} (default 5) – PostgreSQL driver's server-side
+ *       prepared statement cache, kept per pooled connection</li>
+ *   <li>{@code db.pool.metricsIntervalMinutes} (default 5, 0 = off) – how often pool metrics are logged</li>
+ * </ul>
  */
 public class DBConnection {
 
     private static final String PROPERTIES_FILE = "/db.properties";
 
+    // Time spent waiting in getConnection(), for the pool metrics
+    private static final AtomicLong acquisitions = new AtomicLong();
+    private static final AtomicLong totalAcquireMicros = new AtomicLong();
+    private static final AtomicLong maxAcquireMicros = new AtomicLong();
+
+    // Built on first use; a failed attempt (e.g. missing properties) is retried on the next call
+    private static volatile HikariDataSource dataSource;
+
+    private static HikariDataSource dataSource() {
+        HikariDataSource ds = dataSource;
+        if (ds == null) {
+            synchronized (DBConnection.class) {
+                ds = dataSource;
+                if (ds == null) dataSource = ds = create();
+            }
+        }
+        return ds;
+    }
+
     /**
-     * Loads connection properties and returns an open JDBC Connection.
+     * Borrows a connection from the pool.
      *
-     * @return a Connection object to the configured database
-     * @throws Exception if the properties file is missing or connection fails
+     * @return a pooled Connection; closing it returns it to the pool
+     * @throws Exception if the properties file is missing or no connection is available in time
      */
     public static Connection getConnection() throws Exception {
+        long start = System.nanoTime();
+        Connection conn = dataSource().getConnection();
+        long micros = (System.nanoTime() - start) / 1_000;
+        acquisitions.incrementAndGet();
+        totalAcquireMicros.addAndGet(micros);
+        maxAcquireMicros.accumulateAndGet(micros, Math::max);
+        return conn;
+    }
+
+    /**
+     * Returns pool metrics for logging: active, idle, total and pending connections, plus
+     * average and maximum time to acquire a connection.
+     */
+    public static String stats() {
+        HikariPoolMXBean pool = dataSource().getHikariPoolMXBean();
+        long n = acquisitions.get();
+        return "active=" + pool.getActiveConnections()
+                + ", idle=" + pool.getIdleConnections()
+                + ", total=" + pool.getTotalConnections()
+                + ", pending=" + pool.getThreadsAwaitingConnection()
+                + ", acquisitions=" + n
+                + ", avgAcquire=" + String.format("%.2fms", n == 0 ? 0.0 : totalAcquireMicros.get() / 1000.0 / n)
+                + ", maxAcquire=" + String.format("%.2fms", maxAcquireMicros.get() / 1000.0);
+    }
+
+    /**
+     * Closes the pool and all its connections.
+     */
+    public static synchronized void close() {
+        if (dataSource != null) dataSource.close();
+    }
+
+    private static HikariDataSource create() {
         // 1) Load properties from the classpath
         Properties props = new Properties();
         try (InputStream in = DBConnection.class.getResourceAsStream(PROPERTIES_FILE)) {
@@ -27,15 +99,60 @@ public class DBConnection {
                 throw new RuntimeException("Unable to find " + PROPERTIES_FILE + " in the classpath");
             }
             props.load(in);
+        } catch (java.io.IOException e) {
+            throw new RuntimeException("Unable to read " + PROPERTIES_FILE, e);
         }
 
-        // 2) Read the URL, username, and password
-        String url      = props.getProperty("db.url");
-        String user     = props.getProperty("db.user");
-        String password = props.getProperty("db.password");
+        // 2) Connection settings and pool sizing
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("jobify-db");
+        config.setJdbcUrl(props.getProperty("db.url"));
+        config.setUsername(props.getProperty("db.user"));
+        config.setPassword(props.getProperty("db.password"));
+        config.setMaximumPoolSize(intProp(props, "db.pool.maximumPoolSize", 10));
+        config.setMinimumIdle(intProp(props, "db.pool.minimumIdle", 2));
+        config.setConnectionTimeout(longProp(props, "db.pool.connectionTimeoutMs", 5_000));
+        config.setIdleTimeout(longProp(props, "db.pool.idleTimeoutMs", 600_000));
+        config.setMaxLifetime(longProp(props, "db.pool.maxLifetimeMs", 1_800_000));
+        config.setLeakDetectionThreshold(longProp(props, "db.pool.leakDetectionThresholdMs", 0));
+        config.setInitializationFailTimeout(-1); // Start even if the database is down; callers get the error
+
+        // 3) Validation: JDBC4 isValid() on borrow, bounded by this timeout
+        config.setValidationTimeout(longProp(props, "db.pool.validationTimeoutMs", 3_000));
+
+        // 4) PostgreSQL server-side prepared statement cache (per connection, so it survives pooling)
+        config.addDataSourceProperty("prepareThreshold", props.getProperty("db.pool.prepareThreshold", "1"));
+        config.addDataSourceProperty("preparedStatementCacheQueries",
+                props.getProperty("db.pool.preparedStatementCacheQueries", "256"));
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB",
+                props.getProperty("db.pool.preparedStatementCacheSizeMiB", "5"));
+
+        HikariDataSource dataSource = new HikariDataSource(config);
+        Runtime.getRuntime().addShutdownHook(new Thread(dataSource::close, "db-pool-shutdown"));
+        startMetricsLog(longProp(props, "db.pool.metricsIntervalMinutes", 5));
+        System.out.println("🗄️ Database pool started (max " + config.getMaximumPoolSize() + " connections)");
+        return dataSource;
+    }
+
+    private static void startMetricsLog(long intervalMinutes) {
+        if (intervalMinutes <= 0) return;
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(() -> System.out.println("🗄️ DB pool: " + stats()),
+                intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    private static int intProp(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
 
-        // 3) Create and return the JDBC connection
-        return DriverManager.getConnection(url, user, password);
+    private static long longProp(Properties props, String key, long defaultValue) {
+        String value = props.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
     }
 
     /**
@@ -44,8 +161,9 @@ public class DBConnection {
     public static void main(String[] args) {
         try (Connection conn = getConnection()) {
             System.out.println("✅ Successfully connected to: " + conn.getMetaData().getURL());
+            System.out.println("🗄️ DB pool: " + stats());
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+}
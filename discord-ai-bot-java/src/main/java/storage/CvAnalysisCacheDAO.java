@@ -0,0 +1,96 @@
+package storage;
+
+import config.DBConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Data Access Object for the 'cv_analysis_cache' table.
+ * Stores the parsed GPT results for a CV under a content hash, so re-uploading the same CV
+ * does not call OpenAI again.
+ */
+public class CvAnalysisCacheDAO {
+
+    /**
+     * Cached GPT results for one CV.
+     *
+     * @param extractionJson the profile extraction JSON (name, email, skills, positions)
+     * @param ratingJson     the rating JSON (rating, feedback)
+     */
+    public record CachedAnalysis(String extractionJson, String ratingJson) {
+    }
+
+    /**
+     * Looks up a cached analysis.
+     *
+     * @param cacheKey hash of the normalized CV text, prompt version and model
+     * @return the cached analysis, or null if there is none
+     * @throws Exception if the database operation fails
+     */
+    public static CachedAnalysis find(String cacheKey) throws Exception {
+        String sql = "SELECT extraction_json, rating_json FROM cv_analysis_cache WHERE cache_key = ?";
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, cacheKey);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) return null;
+                return new CachedAnalysis(rs.getString("extraction_json"), rs.getString("rating_json"));
+            }
+        }
+    }
+
+    /**
+     * Stores (or replaces) the analysis for a cache key.
+     *
+     * @param cacheKey      hash of the normalized CV text, prompt version and model
+     * @param promptVersion version of the prompt templates that produced the result
+     * @param model         the OpenAI model used
+     * @param analysis      the results to store
+     * @throws Exception if the database operation fails
+     */
+    public static void save(String cacheKey, String promptVersion, String model, CachedAnalysis analysis) throws Exception {
+        String sql = """
+            INSERT INTO cv_analysis_cache
+                (cache_key, prompt_version, model, extraction_json, rating_json)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (cache_key) DO UPDATE
+              SET extraction_json = EXCLUDED.extraction_json,
+                  rating_json     = EXCLUDED.rating_json,
+                  created_at      = NOW()
+            """;
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, cacheKey);
+            stmt.setString(2, promptVersion);
+            stmt.setString(3, model);
+            stmt.setString(4, analysis.extractionJson());
+            stmt.setString(5, analysis.ratingJson());
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Deletes entries produced by older prompt templates. They can never be hit again,
+     * because the prompt version is part of the cache key.
+     *
+     * @param currentPromptVersion the version to keep
+     * @return the number of rows deleted
+     * @throws Exception if the database operation fails
+     */
+    public static int deleteOtherPromptVersions(String currentPromptVersion) throws Exception {
+        String sql = "DELETE FROM cv_analysis_cache WHERE prompt_version <> ?";
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, currentPromptVersion);
+            return stmt.executeUpdate();
+        }
+    }
+}
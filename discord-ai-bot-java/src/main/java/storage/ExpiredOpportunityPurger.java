@@ -0,0 +1,79 @@
+package storage;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that deletes catalog opportunities whose application deadline has passed,
+ * and catalog opportunities no user is assigned to any more.
+ * Rows are removed in small batches with a short pause in between, so the purge never
+ * holds locks on the 'opportunity' table for long.
+ */
+public class ExpiredOpportunityPurger {
+
+    private static final int BATCH_SIZE = Integer.getInteger("opportunity.purge.batchSize", 200);
+    private static final long PAUSE_BETWEEN_BATCHES_MS = Long.getLong("opportunity.purge.pauseMs", 100);
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "expired-opportunity-purge");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Starts purging after a short delay and then every {@code intervalMinutes}.
+     *
+     * @param intervalMinutes minutes between two purge runs
+     */
+    public void start(long intervalMinutes) {
+        scheduler.scheduleWithFixedDelay(this::purgeSafely, 1, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void purgeSafely() {
+        try {
+            purge();
+        } catch (Exception e) {
+            // Never let an exception cancel the scheduled task
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Deletes expired and then unassigned catalog rows, batch by batch until none are left.
+     *
+     * @return the total number of catalog rows deleted
+     * @throws Exception if a batch fails
+     */
+    public int purge() throws Exception {
+        int expired = purgeInBatches(OpportunityDAO::purgeExpiredBatch);
+        int unassigned = purgeInBatches(OpportunityDAO::purgeUnassignedBatch);
+
+        if (expired > 0) {
+            System.out.println("🧹 Purged " + expired + " expired opportunities");
+        }
+        if (unassigned > 0) {
+            System.out.println("🧹 Purged " + unassigned + " opportunities no user is assigned to");
+        }
+        return expired + unassigned;
+    }
+
+    private interface BatchDelete {
+        int deleteBatch(int batchSize) throws Exception;
+    }
+
+    private static int purgeInBatches(BatchDelete batch) throws Exception {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = batch.deleteBatch(BATCH_SIZE);
+            total += deleted;
+            if (deleted == BATCH_SIZE) Thread.sleep(PAUSE_BETWEEN_BATCHES_MS);
+        } while (deleted == BATCH_SIZE);
+        return total;
+    }
+}
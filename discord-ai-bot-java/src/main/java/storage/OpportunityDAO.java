@@ -1,15 +1,22 @@
 package storage;
 
 import bot.api.OpportunityClient.Opportunity;
+import bot.api.OpportunityJsonDecoder;
+import bot.api.OpportunityStore;
 import config.DBConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.*;
-import java.util.List;
-import java.util.ArrayList;
+import java.sql.Date;
+import java.util.*;
 
 /**
- * Data Access Object (DAO) for interacting with the 'opportunities' table.
+ * Data Access Object (DAO) for the shared 'opportunity' catalog table and the
+ * 'user_opportunity' assignment table. Each opportunity is stored once; assigning it to
+ * a user only adds a narrow (discord_id, opportunity_id) row.
  * Handles logic for checking if an opportunity already exists for a user,
- * and inserting new opportunities into the database.
+ * and saving new opportunities into the database, one at a time or in bulk.
  */
 public class OpportunityDAO {
 
@@ -22,11 +29,11 @@ public class OpportunityDAO {
      * @throws Exception if a database error occurs
      */
     public static boolean existsForUser(Opportunity opp, String discordId) throws Exception {
-        String sql = "SELECT 1 FROM opportunities WHERE opportunity_id = ? AND discord_id = ? LIMIT 1";
+        String sql = "SELECT 1 FROM user_opportunity WHERE opportunity_id = ? AND discord_id = ? LIMIT 1";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, opp.id);          // Set the opportunity ID
+            stmt.setString(1, opp.id());          // Set the opportunity ID
             stmt.setString(2, discordId);       // Set the user ID
 
             try (ResultSet rs = stmt.executeQuery()) {
@@ -43,60 +50,177 @@ public class OpportunityDAO {
      * @throws Exception if insertion fails
      */
     public static void insertForUser(Opportunity opp, String discordId) throws Exception {
-        String sql = """
-    INSERT INTO opportunities (
-        opportunity_id, title, description, job_type, application_deadline,
-        discord_id, url,
-        wage, home_office, benefits, formal_requirements,
-        technical_requirements, contact_person, company
-             ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        """;
+        saveAllForUser(List.of(opp), discordId);
+    }
 
+    // Parameters per row in the catalog upsert
+    private static final int COLUMNS = 14;
+    // Largest number of rows per multi-row INSERT; 14 parameters each keeps well under the
+    // 65535 bind parameters pgjdbc can send in one statement
+    private static final int MAX_ROWS_PER_INSERT = 1_000;
 
-        // Debug log showing opportunity info before inserting
-        System.out.println("\n📥 Preparing to insert opportunity:");
-        System.out.println("→ ID: " + opp.id);
-        System.out.println("→ Title: " + opp.title);
-        System.out.println("→ Wage: " + opp.wage);
-        System.out.println("→ Home Office: " + opp.homeOffice);
-        System.out.println("→ Benefits: " + opp.benefits);
-        System.out.println("→ Form Req: " + opp.formReq);
-        System.out.println("→ Tech Req: " + opp.techReq);
-        System.out.println("→ Contact: " + opp.contactPerson);
+    /**
+     * Saves a batch of opportunities for a user in one transaction, skipping the ones the user
+     * already has. Each chunk of up to 1000 rows is two multi-row statements: an upsert into the
+     * shared catalog, which only rewrites rows whose content hash changed (but locks every row
+     * it touches, see {@link #purgeUnassignedBatch}), and an
+     * {@code INSERT ... ON CONFLICT DO NOTHING RETURNING} of the narrow assignment rows.
+     * Rows are written in id order, so two saves with overlapping opportunities lock the shared
+     * rows in the same order and cannot deadlock each other.
+     *
+     * @param opportunities the opportunities to save (duplicates by id are ignored)
+     * @param discordId     the Discord user ID to associate them with
+     * @return the ids that were newly saved
+     * @throws Exception if the transaction fails; nothing is saved in that case
+     */
+    public static List<String> saveAllForUser(Collection<Opportunity> opportunities, String discordId) throws Exception {
+        Map<String, Opportunity> unique = new LinkedHashMap<>();
+        for (Opportunity opp : opportunities) unique.putIfAbsent(opp.id(), opp);
+        if (unique.isEmpty()) return List.of();
 
+        List<Opportunity> rows = new ArrayList<>(unique.values());
+        rows.sort(Comparator.comparing(Opportunity::id));
+        List<String> inserted = new ArrayList<>();
+        boolean catalogChanged = false;
 
+        try (Connection conn = DBConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_INSERT) {
+                    List<Opportunity> chunk = rows.subList(from, Math.min(rows.size(), from + MAX_ROWS_PER_INSERT));
 
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    // 1) Shared catalog rows: new ones are inserted, changed ones rewritten, the rest untouched
+                    try (PreparedStatement stmt = conn.prepareStatement(catalogUpsert(chunk.size()))) {
+                        for (int i = 0; i < chunk.size(); i++) {
+                            bindRow(stmt, i * COLUMNS, chunk.get(i));
+                        }
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                if (!rs.getBoolean("inserted")) catalogChanged = true;
+                            }
+                        }
+                    }
 
-            // Basic info
-            stmt.setString(1, opp.id);
-            stmt.setString(2, opp.title);
-            stmt.setString(3, opp.description);
-            stmt.setString(4, opp.type);
+                    // 2) Narrow assignment rows for this user
+                    try (PreparedStatement stmt = conn.prepareStatement(assignmentInsert(chunk.size()))) {
+                        for (int i = 0; i < chunk.size(); i++) {
+                            stmt.setString(2 * i + 1, discordId);
+                            stmt.setString(2 * i + 2, chunk.get(i).id());
+                        }
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) inserted.add(rs.getString(1));
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
 
+        // A rewritten catalog row changes what every user assigned to it sees
+        if (catalogChanged) UserDataVersions.bumpAllOpportunities();
+        if (!inserted.isEmpty()) UserDataVersions.bumpOpportunities(discordId);
+        System.out.println("💾 Saved " + inserted.size() + " new of " + rows.size() + " opportunities for " + discordId);
+        return inserted;
+    }
 
-            // Convert deadline to SQL date or set null
-            if (opp.deadline != null && !opp.deadline.isBlank()) {
-                stmt.setDate(5, Date.valueOf(opp.deadline));
-            } else {
-                stmt.setNull(5, Types.DATE);
-            }
+    private static String catalogUpsert(int rows) {
+        StringBuilder sql = new StringBuilder("""
+            INSERT INTO opportunity (
+                opportunity_id, title, description, job_type, application_deadline,
+                url, wage, home_office, benefits, formal_requirements,
+                technical_requirements, contact_person, company, content_hash
+            ) VALUES
+            """);
+        appendRows(sql, rows, COLUMNS);
+        sql.append("""
 
-            // Associate with user and optional fields
-            stmt.setString(6, discordId);
-            stmt.setString(7, emptyToNull(opp.url));
-            stmt.setString(8, emptyToNull(opp.wage));
-            stmt.setString(9, emptyToNull(opp.homeOffice));
-            stmt.setString(10, emptyToNull(opp.benefits));
-            stmt.setString(11, emptyToNull(opp.formReq));
-            stmt.setString(12, emptyToNull(opp.techReq));
-            stmt.setString(13, emptyToNull(opp.contactPerson));
-            stmt.setString(14, emptyToNull(opp.company));
-
-            // Insert into database
-            stmt.executeUpdate();
-            System.out.println("✅ Inserted into database.");
+            ON CONFLICT (opportunity_id) DO UPDATE
+              SET title                  = EXCLUDED.title,
+                  description            = EXCLUDED.description,
+                  job_type               = EXCLUDED.job_type,
+                  application_deadline   = EXCLUDED.application_deadline,
+                  url                    = EXCLUDED.url,
+                  wage                   = EXCLUDED.wage,
+                  home_office            = EXCLUDED.home_office,
+                  benefits               = EXCLUDED.benefits,
+                  formal_requirements    = EXCLUDED.formal_requirements,
+                  technical_requirements = EXCLUDED.technical_requirements,
+                  contact_person         = EXCLUDED.contact_person,
+                  company                = EXCLUDED.company,
+                  content_hash           = EXCLUDED.content_hash,
+                  updated_at             = NOW()
+              WHERE opportunity.content_hash IS DISTINCT FROM EXCLUDED.content_hash
+            RETURNING opportunity_id, (xmax = 0) AS inserted
+            """);
+        return sql.toString();
+    }
+
+    private static String assignmentInsert(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO user_opportunity (discord_id, opportunity_id) VALUES\n");
+        appendRows(sql, rows, 2);
+        sql.append("\nON CONFLICT (discord_id, opportunity_id) DO NOTHING\nRETURNING opportunity_id");
+        return sql.toString();
+    }
+
+    private static void appendRows(StringBuilder sql, int rows, int columns) {
+        String row = "(" + "?, ".repeat(columns - 1) + "?)";
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ",\n").append(row);
+        }
+    }
+
+    /**
+     * Binds one catalog row, in the column order used by {@link #catalogUpsert},
+     * starting after parameter index {@code offset}.
+     */
+    private static void bindRow(PreparedStatement stmt, int offset, Opportunity opp) throws SQLException {
+        // Basic info
+        stmt.setString(offset + 1, opp.id());
+        stmt.setString(offset + 2, opp.title());
+        stmt.setString(offset + 3, opp.description());
+        stmt.setString(offset + 4, opp.type());
+
+        // Convert deadline to SQL date or set null (e.g. "N/A" from the API)
+        if (opp.deadlineDate() != null) {
+            stmt.setDate(offset + 5, Date.valueOf(opp.deadlineDate()));
+        } else {
+            stmt.setNull(offset + 5, Types.DATE);
+        }
+
+        // Optional fields
+        stmt.setString(offset + 6, emptyToNull(opp.url()));
+        stmt.setString(offset + 7, emptyToNull(opp.wage()));
+        stmt.setString(offset + 8, emptyToNull(opp.homeOffice()));
+        stmt.setString(offset + 9, emptyToNull(opp.benefits()));
+        stmt.setString(offset + 10, emptyToNull(opp.formReq()));
+        stmt.setString(offset + 11, emptyToNull(opp.techReq()));
+        stmt.setString(offset + 12, emptyToNull(opp.contactPerson()));
+        stmt.setString(offset + 13, emptyToNull(opp.company()));
+
+        // Lets the upsert skip rows whose content hasn't changed
+        stmt.setString(offset + 14, contentHash(opp));
+    }
+
+    // SHA-256 over the stored fields, NUL-separated so adjacent fields can't run together
+    private static String contentHash(Opportunity opp) {
+        String content = String.join("\0",
+                Objects.toString(opp.title(), ""), Objects.toString(opp.description(), ""),
+                Objects.toString(opp.type(), ""), Objects.toString(opp.deadlineDate(), ""),
+                Objects.toString(opp.url(), ""), Objects.toString(opp.wage(), ""),
+                Objects.toString(opp.homeOffice(), ""), Objects.toString(opp.benefits(), ""),
+                Objects.toString(opp.formReq(), ""), Objects.toString(opp.techReq(), ""),
+                Objects.toString(opp.contactPerson(), ""), Objects.toString(opp.company(), ""));
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 
@@ -111,6 +235,10 @@ public class OpportunityDAO {
         return (value == null || value.isBlank()) ? null : value;
     }
 
+    private static String orDefault(String value, String defaultValue) {
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+
     /**
      * Deletes all opportunities assigned to a specific user.
      *
@@ -118,18 +246,20 @@ public class OpportunityDAO {
      * @throws Exception if deletion fails
      */
     public static void deleteAllForUser(String discordId) throws Exception {
-        String sql = "DELETE FROM opportunities WHERE discord_id = ?";
+        String sql = "DELETE FROM user_opportunity WHERE discord_id = ?";
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, discordId);
             int deleted = stmt.executeUpdate();
+            UserDataVersions.bumpOpportunities(discordId);
             System.out.println("🗑️ Deleted " + deleted + " opportunities for " + discordId);
         }
     }
 
     /**
-     * Retrieves all opportunities assigned to a specific Discord user.
+     * Retrieves all opportunities assigned to a specific Discord user whose application
+     * deadline has not passed. Opportunities without a deadline are always included.
      *
      * @param discordId the Discord user ID
      * @return a list of Opportunity objects associated with the user
@@ -139,11 +269,13 @@ public class OpportunityDAO {
         List<Opportunity> list = new ArrayList<>();
 
         String sql = """
-        SELECT opportunity_id, title, description, job_type, application_deadline,
-               url, wage, home_office, benefits, formal_requirements,
-               technical_requirements, contact_person, company
-        FROM opportunities
-        WHERE discord_id = ?
+        SELECT o.opportunity_id, o.title, o.description, o.job_type, o.application_deadline,
+               o.url, o.wage, o.home_office, o.benefits, o.formal_requirements,
+               o.technical_requirements, o.contact_person, o.company
+        FROM user_opportunity uo
+        JOIN opportunity o ON o.opportunity_id = uo.opportunity_id
+        WHERE uo.discord_id = ?
+          AND (o.application_deadline IS NULL OR o.application_deadline >= CURRENT_DATE)
         """;
 
         try (Connection conn = DBConnection.getConnection();
@@ -153,25 +285,25 @@ public class OpportunityDAO {
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                Opportunity opp = new Opportunity();
-                opp.id = rs.getString("opportunity_id");
-                opp.title = rs.getString("title");
-                opp.description = rs.getString("description");
-                opp.type = rs.getString("job_type");
-
                 Date deadline = rs.getDate("application_deadline");
-                opp.deadline = (deadline != null) ? deadline.toString() : null;
-
-                opp.url = rs.getString("url");
-                opp.wage = rs.getString("wage");
-                opp.homeOffice = rs.getString("home_office");
-                opp.benefits = rs.getString("benefits");
-                opp.formReq = rs.getString("formal_requirements");
-                opp.techReq = rs.getString("technical_requirements");
-                opp.contactPerson = rs.getString("contact_person");
-                opp.company = rs.getString("company"); // ✅ Correcto
-
 
+                // Share the canonical instance instead of holding a private copy per user.
+                // Fall back to the decoder's defaults, so the row equals the instance decoded
+                // from the API and canonical() keeps it instead of swapping it back and forth
+                Opportunity opp = OpportunityStore.canonical(new Opportunity(
+                        rs.getString("opportunity_id"),
+                        rs.getString("title"),
+                        orDefault(rs.getString("company"), OpportunityJsonDecoder.DEFAULT_COMPANY),
+                        orDefault(rs.getString("job_type"), OpportunityJsonDecoder.DEFAULT_JOB_TYPE),
+                        (deadline != null) ? deadline.toString() : OpportunityJsonDecoder.DEFAULT_DEADLINE,
+                        rs.getString("description"),
+                        rs.getString("url"),
+                        rs.getString("wage"),
+                        rs.getString("home_office"),
+                        rs.getString("benefits"),
+                        rs.getString("formal_requirements"),
+                        rs.getString("technical_requirements"),
+                        rs.getString("contact_person")));
 
                 list.add(opp);
             }
@@ -179,4 +311,95 @@ public class OpportunityDAO {
 
         return list;
     }
+
+    /**
+     * Deletes one batch of catalog opportunities whose application deadline has passed;
+     * their assignments go with them (ON DELETE CASCADE).
+     * Batches are kept small so each delete holds its row locks only briefly;
+     * call repeatedly until it returns less than {@code batchSize}.
+     *
+     * @param batchSize maximum number of catalog rows to delete
+     * @return the number of catalog rows deleted
+     * @throws Exception if deletion fails
+     */
+    public static int purgeExpiredBatch(int batchSize) throws Exception {
+        String sql = """
+        DELETE FROM opportunity
+        WHERE opportunity_id IN (
+            SELECT opportunity_id
+            FROM opportunity
+            WHERE application_deadline < CURRENT_DATE
+            LIMIT ?
+        )
+        """;
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, batchSize);
+            int deleted = stmt.executeUpdate();
+            if (deleted > 0) UserDataVersions.bumpAllOpportunities();
+            return deleted;
+        }
+    }
+
+    /**
+     * Deletes one batch of catalog opportunities that no user is assigned to any more
+     * (e.g. after {@link #deleteAllForUser}). Call repeatedly like {@link #purgeExpiredBatch}.
+     * <p>
+     * Candidates are locked first and re-checked in a second statement, whose fresh snapshot
+     * sees assignments committed in the meantime. A concurrent {@link #saveAllForUser} locks
+     * the same catalog row in its upsert (ON CONFLICT locks the row even when it is left
+     * unchanged), so it either holds the row and the purge skips it, or waits until the purge
+     * commits and then inserts the row again. Either way a new assignment is never cascaded away.
+     *
+     * @param batchSize maximum number of catalog rows to delete
+     * @return the number of catalog rows deleted
+     * @throws Exception if deletion fails
+     */
+    public static int purgeUnassignedBatch(int batchSize) throws Exception {
+        String lockSql = """
+        SELECT o.opportunity_id
+        FROM opportunity o
+        WHERE NOT EXISTS (SELECT 1 FROM user_opportunity uo WHERE uo.opportunity_id = o.opportunity_id)
+        LIMIT ?
+        FOR UPDATE SKIP LOCKED
+        """;
+        String deleteSql = """
+        DELETE FROM opportunity o
+        WHERE o.opportunity_id = ANY (?)
+          AND NOT EXISTS (SELECT 1 FROM user_opportunity uo WHERE uo.opportunity_id = o.opportunity_id)
+        """;
+
+        try (Connection conn = DBConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                // 1) Lock the candidates, skipping rows a save is working on right now
+                List<String> candidates = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(lockSql)) {
+                    stmt.setInt(1, batchSize);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) candidates.add(rs.getString(1));
+                    }
+                }
+
+                // 2) Delete those that are still unassigned now that we hold their locks
+                int deleted = 0;
+                if (!candidates.isEmpty()) {
+                    try (PreparedStatement stmt = conn.prepareStatement(deleteSql)) {
+                        stmt.setArray(1, conn.createArrayOf("text", candidates.toArray()));
+                        deleted = stmt.executeUpdate();
+                    }
+                }
+                conn.commit();
+                return deleted;
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
 }
@@ -56,6 +56,7 @@ public class StudentDAO {
             stmt.setString(5, discordId);
 
             stmt.executeUpdate();
+            UserDataVersions.bumpProfile(discordId);
         }
     }
 
@@ -88,6 +89,26 @@ public class StudentDAO {
         }
     }
 
+    /**
+     * Retrieves the resume text stored for a student.
+     *
+     * @param discordId the unique Discord user ID
+     * @return the CV text, or null if the student or the text doesn't exist
+     * @throws Exception if the database query fails
+     */
+    public static String getCvText(String discordId) throws Exception {
+        String sql = "SELECT cv_text FROM student WHERE discord_id = ?";
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, discordId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString("cv_text") : null;
+            }
+        }
+    }
+
     /**
      * Deletes a student's profile from the database using their Discord ID.
      *
@@ -101,6 +122,7 @@ public class StudentDAO {
 
             stmt.setString(1, discordId);
             int rows = stmt.executeUpdate();
+            if (rows > 0) UserDataVersions.bumpProfile(discordId);
             return rows > 0;
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,44 @@
+package storage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory version counters for the data a user's answers depend on.
+ * The DAOs bump a user's profile or opportunity version whenever they write it, so anything
+ * cached against an older version (e.g. GPT answers) is known to be stale. Versions start
+ * at zero on every run, which is fine for caches that live in memory too.
+ */
+public class UserDataVersions {
+
+    private static final Map<String, AtomicLong> profileVersions = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> opportunityVersions = new ConcurrentHashMap<>();
+    // Bumped by writes that touch every user's opportunities at once (e.g. the expiry purge)
+    private static final AtomicLong allOpportunitiesVersion = new AtomicLong();
+
+    public static long profileVersion(String discordId) {
+        AtomicLong v = profileVersions.get(discordId);
+        return v == null ? 0 : v.get();
+    }
+
+    /**
+     * Returns the version of a user's saved opportunities, including purges that affect everyone.
+     */
+    public static String opportunityVersion(String discordId) {
+        AtomicLong v = opportunityVersions.get(discordId);
+        return (v == null ? 0 : v.get()) + "." + allOpportunitiesVersion.get();
+    }
+
+    static void bumpProfile(String discordId) {
+        profileVersions.computeIfAbsent(discordId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    static void bumpOpportunities(String discordId) {
+        opportunityVersions.computeIfAbsent(discordId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    static void bumpAllOpportunities() {
+        allOpportunitiesVersion.incrementAndGet();
+    }
+}
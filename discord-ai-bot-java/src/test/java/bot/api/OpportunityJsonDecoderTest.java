@@ -0,0 +1,125 @@
+package bot.api;
+
+import bot.api.OpportunityClient.Opportunity;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the streaming decoder against a recorded-shape search page (5 opportunities with
+ * long descriptions, benefits and fields the bot ignores), including how much it allocates
+ * compared to the String + JsonObject tree decoding it replaced.
+ */
+class OpportunityJsonDecoderTest {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 200;
+
+    private static byte[] page;
+
+    @BeforeAll
+    static void loadFixture() throws IOException {
+        try (InputStream in = OpportunityJsonDecoderTest.class.getResourceAsStream("/opportunity-page.json")) {
+            assertNotNull(in, "fixture opportunity-page.json missing");
+            page = in.readAllBytes();
+        }
+    }
+
+    @Test
+    void decodesEveryOpportunityOnThePage() throws IOException {
+        List<Opportunity> opportunities = decode();
+
+        assertEquals(5, opportunities.size());
+        Opportunity first = opportunities.get(0);
+        assertEquals("op-1000", first.id());
+        assertEquals("Example s.r.o.", first.company());
+        assertEquals("Type 2", first.type());
+        assertEquals("Jana Novakova", first.contactPerson());
+        assertNotNull(first.deadlineDate());
+        assertFalse(first.description().isEmpty());
+    }
+
+    @Test
+    void allocatesLessThanTreeDecoding() throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeAllocationCounting(threads);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            decode();
+            decodeAsTree();
+        }
+
+        long streaming = allocatedPerRound(threads, true);
+        long tree = allocatedPerRound(threads, false);
+        System.out.println("📏 Allocated per page: streaming=" + streaming + " B, tree=" + tree + " B");
+
+        // The tree path holds the whole body as a String plus a JsonObject copy of every field;
+        // on this page streaming measured about 55% of it, the margin absorbs JVM noise
+        assertTrue(streaming < tree * 0.75,
+                "streaming decoder allocated " + streaming + " B per page, tree decoding " + tree + " B");
+    }
+
+    private static long allocatedPerRound(com.sun.management.ThreadMXBean threads, boolean streaming) throws IOException {
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            if (streaming) decode();
+            else decodeAsTree();
+        }
+        return (threads.getThreadAllocatedBytes(thread) - before) / MEASURED_ROUNDS;
+    }
+
+    private static void assumeAllocationCounting(com.sun.management.ThreadMXBean threads) {
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            Assumptions.abort("per-thread allocation counting not supported by this JVM");
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private static List<Opportunity> decode() throws IOException {
+        return OpportunityJsonDecoder.decode(
+                new InputStreamReader(new ByteArrayInputStream(page), StandardCharsets.UTF_8));
+    }
+
+    // The decoding fetchPage did before: body as a String, parsed into a tree, fields copied out
+    private static List<Opportunity> decodeAsTree() {
+        JsonObject root = JsonParser.parseString(new String(page, StandardCharsets.UTF_8)).getAsJsonObject();
+        List<Opportunity> results = new ArrayList<>();
+        for (JsonElement el : root.getAsJsonArray("opportunityPreviewDtos")) {
+            JsonObject o = el.getAsJsonObject();
+            JsonArray orgs = o.getAsJsonArray("organizationBaseDtos");
+            JsonArray experts = o.getAsJsonArray("expertPreviews");
+            results.add(new Opportunity(
+                    string(o, "opportunityId"), string(o, "opportunityName"),
+                    orgs.isEmpty() ? "Unknown" : string(orgs.get(0).getAsJsonObject(), "organizationName"),
+                    "Type " + o.getAsJsonArray("jobTypes").get(0).getAsString(),
+                    String.valueOf(o.get("opportunitySignupDate").getAsLong()),
+                    string(o, "opportunityDescription"), string(o, "opportunityExtLink"),
+                    string(o, "opportunityWage"), string(o, "opportunityHomeOffice"),
+                    string(o, "opportunityBenefit"), string(o, "opportunityFormReq"),
+                    string(o, "opportunityTechReq"),
+                    experts.isEmpty() ? "" : string(experts.get(0).getAsJsonObject(), "name")));
+        }
+        return results;
+    }
+
+    private static String string(JsonObject o, String field) {
+        JsonElement el = o.get(field);
+        return el == null || el.isJsonNull() ? "" : el.getAsString();
+    }
+}
@@ -0,0 +1,184 @@
+package bot.api;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exercises retries, hedging, the circuit breaker and client-error handling against a local
+ * mock server that injects latency and errors.
+ */
+class ResilientCallerTest {
+
+    private MockWebServer server;
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private OkHttpClient client;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new OkHttpClient.Builder()
+                .readTimeout(300, TimeUnit.MILLISECONDS)
+                .eventListener(new EventListener() {
+                    @Override
+                    public void canceled(Call call) {
+                        cancelled.incrementAndGet();
+                    }
+                })
+                .build();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void retriesServerErrorsUntilOneSucceeds() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        assertEquals("ok", caller(5, 2, false).execute(this::get));
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    void retriesReadTimeouts() throws IOException {
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(1, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        assertEquals("ok", caller(5, 2, false).execute(this::get));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void clientErrorsAreNotRetriedAndDoNotOpenTheCircuit() {
+        ResilientCaller caller = caller(2, 2, false);
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setResponseCode(404));
+            ResilientCaller.ClientErrorException e =
+                    assertThrows(ResilientCaller.ClientErrorException.class, () -> caller.execute(this::get));
+            assertEquals(404, e.getCode());
+        }
+        assertEquals(5, server.getRequestCount());
+        assertEquals(CircuitBreaker.State.CLOSED, caller.getCircuitState());
+    }
+
+    @Test
+    void rateLimitingIsRetried() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(429));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        assertEquals("ok", caller(5, 1, false).execute(this::get));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void circuitOpensFailsFastAndClosesAfterASuccessfulTrial() throws Exception {
+        ResilientCaller caller = caller(2, 0, false);
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        assertThrows(IOException.class, () -> caller.execute(this::get));
+        assertThrows(IOException.class, () -> caller.execute(this::get));
+        assertEquals(CircuitBreaker.State.OPEN, caller.getCircuitState());
+
+        // Open: rejected without a request
+        assertThrows(ResilientCaller.CircuitOpenException.class, () -> caller.execute(this::get));
+        assertEquals(2, server.getRequestCount());
+
+        // Half-open after the open window: one trial, which succeeds and closes the circuit
+        Thread.sleep(250);
+        server.enqueue(new MockResponse().setBody("ok"));
+        assertEquals("ok", caller.execute(this::get));
+        assertEquals(CircuitBreaker.State.CLOSED, caller.getCircuitState());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    void failedHalfOpenTrialReopensTheCircuit() throws Exception {
+        ResilientCaller caller = caller(1, 0, false);
+        server.enqueue(new MockResponse().setResponseCode(500));
+        assertThrows(IOException.class, () -> caller.execute(this::get));
+
+        Thread.sleep(250);
+        server.enqueue(new MockResponse().setResponseCode(500));
+        assertThrows(IOException.class, () -> caller.execute(this::get));
+        assertEquals(CircuitBreaker.State.OPEN, caller.getCircuitState());
+        assertThrows(ResilientCaller.CircuitOpenException.class, () -> caller.execute(this::get));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void slowCallIsHedgedAndTheLoserCancelled() throws IOException {
+        ResilientCaller caller = caller(5, 0, true);
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setBody("warm"));
+            caller.execute(this::get);
+        }
+
+        // The primary stalls well past p95 (but within the read timeout); the hedge answers at once
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(250, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody("hedge"));
+        int cancelledBefore = cancelled.get();
+
+        assertEquals("hedge", caller.execute(this::get));
+        assertEquals(7, server.getRequestCount());
+        assertEquals(cancelledBefore + 1, cancelled.get());
+    }
+
+    @Test
+    void interruptingTheCallerCancelsTheCallWithoutCountingAFailure() throws Exception {
+        ResilientCaller caller = caller(1, 2, false);
+        server.enqueue(new MockResponse().setBody("slow").setHeadersDelay(250, TimeUnit.MILLISECONDS));
+
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                caller.execute(this::get);
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        waiter.start();
+        Thread.sleep(50);
+        waiter.interrupt();
+        waiter.join(1_000);
+
+        assertFalse(waiter.isAlive());
+        assertInstanceOf(InterruptedIOException.class, thrown.get());
+        assertEquals(1, cancelled.get());
+        assertEquals(1, server.getRequestCount()); // Not retried
+        assertEquals(CircuitBreaker.State.CLOSED, caller.getCircuitState());
+    }
+
+    private ResilientCaller caller(int failureThreshold, int maxRetries, boolean hedge) {
+        return new ResilientCaller("test", new ResilientCaller.Config(
+                failureThreshold, 200, maxRetries, 1, 5, hedge, 5, 4));
+    }
+
+    private String get(ResilientCaller.Attempt attempt) throws IOException {
+        Call call = client.newCall(new Request.Builder().url(server.url("/opportunity")).build());
+        attempt.onCancel(call::cancel);
+        try (Response response = call.execute()) {
+            if (!response.isSuccessful()) throw ResilientCaller.statusError("API error", response.code());
+            return response.body().string();
+        }
+    }
+}